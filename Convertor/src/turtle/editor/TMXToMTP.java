@@ -221,6 +221,8 @@ public class TMXToMTP {
                     map.getWidth());
             lvl.setFoodRequirement(parseInt(props.getProperty("FoodReq", "0"), 0));
             lvl.setTimeLimit(parseInt(props.getProperty("TimeLimit", "-1"), -1));
+            lvl.setTerrainSpreading(Boolean.parseBoolean(props.getProperty(
+                    "TerrainSpreads", "false")));
             for (MapLayer lay : map.getLayers()) {
                 String typeName = lay.getProperties().getProperty("Type", "");
                 if (typeName.isEmpty()) {
@@ -5,9 +5,9 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -24,10 +24,15 @@ public class AttributeSet<A extends Attributable> implements Serializable {
     private static final String GET_PREFIX = "get";
     private static final String IS_PREFIX = "is";
     private static final String SET_PREFIX = "set";
-    private static final HashMap<Class<?>, Attribute[]> attributeCache = new
-            HashMap<>();
+    private static final ClassValue<Map<String, Attribute>> attributeTables =
+            new ClassValue<Map<String, Attribute>>() {
+                @Override
+                protected Map<String, Attribute> computeValue(Class<?> type) {
+                    return extractAttributes(type);
+                }
+            };
 
-    private transient Hashtable<String, Attribute> attrs;
+    private transient Map<String, Attribute> attrs;
     private final A attributable;
 
     /**
@@ -37,12 +42,19 @@ public class AttributeSet<A extends Attributable> implements Serializable {
      */
     public AttributeSet(A obj) {
         attributable = obj;
-        attrs = new Hashtable<>();
-        if (!attributeCache.containsKey(obj.getClass())) {
-            extractAttributes(attributable);
-        }
-        for (Attribute attr : attributeCache.get(obj.getClass()))
-            attrs.put(attr.getName(), attr);
+        attrs = attributeTableOf(obj.getClass());
+    }
+
+    /**
+     * Obtains the table of attributes of an attributable type. This is only
+     * computed once for each type, and is shared by all the attribute sets
+     * of that type.
+     *
+     * @param type the attributable type.
+     * @return an unmodifiable map of the attribute names to attributes.
+     */
+    public static Map<String, Attribute> attributeTableOf(Class<?> type) {
+        return attributeTables.get(type);
     }
 
     /**
@@ -166,15 +178,13 @@ public class AttributeSet<A extends Attributable> implements Serializable {
     }
 
     /**
-     * Extracts all the attributes of this attribute type and adds to the
-     * current attribute cache.
+     * Extracts all the attributes of an attributable type.
      *
-     * @param attributable the attributable object to extract.
+     * @param type the attributable type to extract.
+     * @return an unmodifiable map of the attribute names to attributes.
      */
-    @SuppressWarnings("unchecked")
-    private static void extractAttributes(Object attributable) {
-        Class<?> type = attributable.getClass();
-        ArrayList<Attribute> attrList = new ArrayList<>();
+    private static Map<String, Attribute> extractAttributes(Class<?> type) {
+        Hashtable<String, Attribute> attrTable = new Hashtable<>();
         for (Method getter : type.getMethods()) {
             // First make sure that this method comes from a class/interface
             // above the Attributable structure
@@ -207,9 +217,9 @@ public class AttributeSet<A extends Attributable> implements Serializable {
             }
 
             Attribute attr = new Attribute(attrName, getter, setter);
-            attrList.add(attr);
+            attrTable.put(attr.getName(), attr);
         }
-        attributeCache.put(type, attrList.toArray(new Attribute[0]));
+        return Collections.unmodifiableMap(attrTable);
     }
 
     /**
@@ -298,12 +308,6 @@ public class AttributeSet<A extends Attributable> implements Serializable {
     private void readObject(ObjectInputStream in)
             throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        attrs = new Hashtable<>();
-        Attributable obj = getAttributable();
-        if (!attributeCache.containsKey(obj.getClass())) {
-            extractAttributes(attributable);
-        }
-        for (Attribute attr : attributeCache.get(obj.getClass()))
-            attrs.put(attr.getName(), attr);
+        attrs = attributeTableOf(attributable.getClass());
     }
 }
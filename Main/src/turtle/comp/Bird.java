@@ -45,17 +45,11 @@ public class Bird extends Enemy {
         if (!isMoving()) {
             Player p = getParentGrid().getPlayer();
             if (p != null) {
-                Direction[] movement = calculateDirection();
-                boolean moved = false;
-                for (Direction dir : movement) {
-                    if (traverseDirection(dir)) {
-                        setImageFrame(BIRD_FLYING_IMAGE);
-                        setHeading(dir);
-                        moved = true;
-                        break;
-                    }
-                }
-                if (!moved) {
+                Direction moved = traverseFirst(calculateDirection());
+                if (moved != null) {
+                    setImageFrame(BIRD_FLYING_IMAGE);
+                    setHeading(moved);
+                } else {
                     setImageFrame(BIRD_STILL_IMAGE);
                     setHeading(Direction.NORTH);
                 }
@@ -57,6 +57,21 @@ public class Button extends Actor {
         this.linkedLocation = linkedLocation;
     }
 
+    /**
+     * Shifts the location of this button along with the linked location.
+     *
+     * @param dRows the number of rows to shift by.
+     * @param dCols the number of columns to shift by.
+     */
+    @Override
+    protected void shiftLocation(int dRows, int dCols) {
+        super.shiftLocation(dRows, dCols);
+        if (linkedLocation.isValidLocation()) {
+            linkedLocation.setLocation(linkedLocation.getRow() + dRows,
+                    linkedLocation.getColumn() + dCols);
+        }
+    }
+
     /**
      * Interacts with other actors, triggering the associated factory (if any).
      *
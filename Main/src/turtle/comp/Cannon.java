@@ -2,7 +2,6 @@ package turtle.comp;
 
 import turtle.core.Direction;
 import turtle.core.Grid;
-import turtle.core.Location;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -57,15 +56,14 @@ public class Cannon extends Mover {
         playSound(Sounds.EXPLOSION);
 
         Direction heading = getHeading();
-        Location loc = new Location(getHeadLocation());
-        heading.traverse(loc);
+        long pos = heading.traverse(getHeadPosition());
 
         animateFrames(SHOOTING_ANIMATION, false);
 
         Projectile p = new Projectile();
         p.setHeading(heading);
-        p.getHeadLocation().setLocation(loc);
-        p.getTrailingLocation().setLocation(loc);
+        p.getHeadLocation().setLocation(pos);
+        p.getTrailingLocation().setLocation(pos);
         parent.placeActor(p);
     }
 
@@ -87,6 +85,16 @@ public class Cannon extends Mover {
         this.period = period;
     }
 
+    /**
+     * A cannon fires on every period of the absolute frame number.
+     *
+     * @return the period of firing, in frames, or 1 if this never fires.
+     */
+    @Override
+    protected int getFramePeriod() {
+        return period == 0 ? 1 : BIG_FRAME * period;
+    }
+
     /**
      * Updates new frame to spawn some projectiles!
      *
@@ -48,11 +48,11 @@ public class Child extends Enemy {
      * Obtains the child's speed. It will double when child is in frenzy state, half
      * if child is in relaxed state.
      *
-     * @return a speed in pixels per frame.
+     * @return a speed in units per frame.
      */
     @Override
-    public double getMoveSpeed() {
-        double normal = super.getMoveSpeed();
+    public int getMoveSpeed() {
+        int normal = super.getMoveSpeed();
         if (frenzyState) {
             return normal * 2;
         } else {
@@ -60,6 +60,17 @@ public class Child extends Enemy {
         }
     }
 
+    /**
+     * Shifts the frame numbers of this child, including its last move.
+     *
+     * @param delta the number of frames to shift by.
+     */
+    @Override
+    protected void shiftFrames(long delta) {
+        super.shiftFrames(delta);
+        lastMove += delta;
+    }
+
     /**
      * Update frames so to update child's moving frame
      */
@@ -108,15 +119,13 @@ public class Child extends Enemy {
 
             Direction[] choices = Direction.values();
             shuffle(choices, g.getRNG());
-            Direction lastDir = Direction.NORTH;
-            for (Direction dir : choices) {
-                lastDir = dir;
-                if (traverseDirection(dir)) {
-                    lastMove = frame;
-                    break;
-                }
+            Direction moved = traverseFirst(choices);
+            if (moved != null) {
+                lastMove = frame;
+                setHeading(moved);
+            } else {
+                setHeading(choices[choices.length - 1]);
             }
-            setHeading(lastDir);
         }
     }
 
@@ -1,5 +1,6 @@
 package turtle.comp;
 
+import turtle.attributes.NotAttribute;
 import turtle.core.Actor;
 import turtle.core.Component;
 import turtle.core.Direction;
@@ -78,6 +79,17 @@ public class Door extends Actor {
         return false;
     }
 
+    /**
+     * A door blocks the line of sight until it is unlocked.
+     *
+     * @return true if still locked, false if unlocking.
+     */
+    @Override
+    @NotAttribute
+    public boolean isOpaque() {
+        return !isDying();
+    }
+
     /**
      * Obtains the dominance level of the actor in relation to another actor.
      * This will be high on the dominance level since it is a fixture.
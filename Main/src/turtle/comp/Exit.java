@@ -42,8 +42,8 @@ public class Exit extends Cell {
     @Override
     public void updateFrame(long frame) {
         super.updateFrame(frame);
-        if (winner != null && winner.getTrailingLocation().equals(
-                getHeadLocation())) {
+        if (winner != null && winner.getTrailingPosition() ==
+                getHeadPosition()) {
             //TODO: sound
             winner.win();
         }
@@ -60,4 +60,14 @@ public class Exit extends Cell {
     public boolean checkPass(Actor visitor) {
         return visitor instanceof Player;
     }
+
+    /**
+     * Only players can ever pass an exit, no matter what state it is in.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isPassStatic() {
+        return true;
+    }
 }
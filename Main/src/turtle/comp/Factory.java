@@ -1,10 +1,10 @@
 package turtle.comp;
 
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.ImageView;
 import turtle.core.*;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -79,6 +79,16 @@ public class Factory extends Cell {
         this.getChildren().add(clonedImg);
     }
 
+    /**
+     * Draws the image of the actor being cloned on top of the factory.
+     *
+     * @param gc the graphics context of the canvas.
+     */
+    @Override
+    protected void drawOverlay(GraphicsContext gc) {
+        drawCentered(gc, clonedImg);
+    }
+
     /**
      * @return the color of this factory
      */
@@ -118,18 +128,11 @@ public class Factory extends Cell {
             throw new IllegalArgumentException("Component is not an actor");
         }
 
+        ComponentInfo<Component> info = ComponentInfo.of(comp);
         this.componentCloned = componentCloned;
-        headingMatters = testHeadingMatters(comp);
+        headingMatters = info.isHeadingSensitive();
         setHeading(heading);
-
-        try {
-            Field img = comp.getDeclaredField("DEFAULT_IMAGE");
-            img.setAccessible(true);
-            clonedImg.setViewport(getTileSet().frameAt(img.getInt(null)));
-        } catch (NoSuchFieldException | IllegalArgumentException |
-                IllegalAccessException e) {
-            e.printStackTrace();
-        }
+        clonedImg.setViewport(getTileSet().frameAt(info.getDefaultImage()));
     }
 
     /**
@@ -160,7 +163,7 @@ public class Factory extends Cell {
         } else {
             clonedImg.setRotate(0);
         }
-        setRotate(heading.ordinal() * RIGHT_ANGLE);
+        setViewRotate(heading.ordinal() * RIGHT_ANGLE);
         this.heading = heading;
     }
 
@@ -203,6 +206,21 @@ public class Factory extends Cell {
         }
     }
 
+    /**
+     * Shifts the frame numbers of this factory, including the frame a
+     * clone was requested in.
+     *
+     * @param delta the number of frames to shift by.
+     */
+    @Override
+    protected void shiftFrames(long delta) {
+        super.shiftFrames(delta);
+        currentFrame += delta;
+        if (cloning >= 0) {
+            cloning += delta;
+        }
+    }
+
     /**
      * Does the actual cloning. Waits for at least one frame before
      * doing the actual cloning.
@@ -219,42 +237,17 @@ public class Factory extends Cell {
 
         cloning = -1;
 
-        Location loc = new Location(getHeadLocation());
-        heading.traverse(loc);
+        long pos = heading.traverse(getHeadPosition());
 
         try {
             Class<Component> comp = getTileSet().componentAt(componentCloned);
-            Actor clone = (Actor) comp.newInstance();
+            Actor clone = (Actor) ComponentInfo.of(comp).newInstance();
             clone.setHeading(heading);
-            clone.getHeadLocation().setLocation(loc);
-            clone.getTrailingLocation().setLocation(loc);
+            clone.getHeadLocation().setLocation(pos);
+            clone.getTrailingLocation().setLocation(pos);
             parent.placeActor(clone);
-        } catch (InstantiationException | IllegalAccessException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Tests whether if heading matters with a particular actor.
-     * Assumes that this class is an actor.
-     *
-     * @param actor the actor class to to test for the heading.
-     * @return true if it matters, false if it doesn't.
-     */
-    private boolean testHeadingMatters(Class<Component> actor) {
-        Actor a;
-        try {
-            a = (Actor) actor.newInstance();
-            Direction before = a.getHeading();
-            if (before == Direction.NORTH) {
-                a.setHeading(Direction.EAST);
-            } else {
-                a.setHeading(Direction.NORTH);
-            }
-            return a.getHeading() != before;
-        } catch (InstantiationException | IllegalAccessException e) {
+        } catch (IllegalStateException e) {
             e.printStackTrace();
-            return false;
         }
     }
 
@@ -272,4 +265,14 @@ public class Factory extends Cell {
         setCloned(getCloned());
         setHeading(getHeading());
     }
+
+    /**
+     * A factory blocks everyone, no matter what state it is in.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isPassStatic() {
+        return true;
+    }
 }
@@ -84,4 +84,14 @@ public class Fire extends Cell {
         animateFrames(TRANSFORM_FRAMES, false);
         transformTo(new Sand(), DEF_ANIMATION_FRAME_CHANGE * TRANSFORM_FRAMES.length);
     }
+
+    /**
+     * Fire lets everyone pass, no matter what state it is in.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isPassStatic() {
+        return true;
+    }
 }
@@ -132,8 +132,8 @@ public class Hint extends Actor {
     @Override
     public void updateFrame(long frame) {
         super.updateFrame(frame);
-        if (playerRead != null && !playerRead.getHeadLocation().equals(
-                getHeadLocation())) {
+        if (playerRead != null && playerRead.getHeadPosition() !=
+                getHeadPosition()) {
             playerRead.resetMessage(this);
             playerRead = null;
         }
@@ -11,6 +11,9 @@ public class LawnMower extends Enemy {
     public static final int DEFAULT_IMAGE = 60;
     private static final long serialVersionUID = 3529870400019445102L;
 
+    //Straight, then back.
+    private static final Direction[][] TURNS = Direction.turnTable(0, 2);
+
     /**
      * Updates frames so that the lawn-mower will move in its facing direction.
      * If it is blocked by something, it will attempt to bounce back.
@@ -21,16 +24,9 @@ public class LawnMower extends Enemy {
     public void updateFrame(long frame) {
         super.updateFrame(frame);
         if (!isMoving()) {
-            final int[] options = {0, 2};
-            Direction heading = getHeading();
-            for (int turn : options) {
-                Direction newDir = heading.turn(turn);
-                if (traverseDirection(newDir, true) ||
-                        turn == options[options.length - 1]) {
-                    setHeading(newDir);
-                    break;
-                }
-            }
+            Direction[] choices = TURNS[getHeading().ordinal()];
+            Direction moved = traverseFirst(choices);
+            setHeading(moved != null ? moved : choices[choices.length - 1]);
         }
     }
 }
@@ -54,7 +54,7 @@ public class PlasticWrap extends Enemy {
      * Overrides the move speed so that it moves half of the default speed.
      */
     @Override
-    public double getMoveSpeed() {
+    public int getMoveSpeed() {
         return super.getMoveSpeed() / 2;
     }
 
@@ -73,11 +73,7 @@ public class PlasticWrap extends Enemy {
         if (!isMoving() && g.getCellAt(getHeadLocation()) instanceof Water) {
             Direction[] choices = Direction.values();
             shuffle(choices, g.getRNG());
-            for (Direction dir : choices) {
-                if (traverseDirection(dir)) {
-                    break;
-                }
-            }
+            traverseFirst(choices);
         }
 
     }
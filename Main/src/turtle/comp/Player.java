@@ -42,6 +42,7 @@ public class Player extends Actor {
     private boolean moving;
     @SuppressWarnings("CanBeFinal")
     private double itemOpacity;
+    private transient boolean slotsChanged;
 
     /**
      * Constructs a new player.
@@ -97,7 +98,8 @@ public class Player extends Actor {
         slots.add(newSlot);
         getChildren().add(newSlot);
 
-        layoutSlots();
+        slotsChanged = true;
+        invalidateView();
         return true;
     }
 
@@ -114,6 +116,18 @@ public class Player extends Actor {
         return !(attacker instanceof Water) && super.die(attacker);
     }
 
+    /**
+     * The player displays its item slots around itself, which cannot be
+     * drawn onto a canvas, so the player always keeps a node.
+     *
+     * @return false always.
+     */
+    @Override
+    @NotAttribute
+    public boolean isDrawable() {
+        return false;
+    }
+
     /**
      * Obtains the dominance level of this player. It will always
      * have the lowest dominance level of all characters.
@@ -238,7 +252,8 @@ public class Player extends Actor {
                     if (slot.isEmpty()) {
                         itr.remove();
                         getChildren().remove(slot);
-                        layoutSlots();
+                        slotsChanged = true;
+                        invalidateView();
                     }
                     break;
                 }
@@ -288,6 +303,19 @@ public class Player extends Actor {
         slot.setOpacity(itemOpacity);
     }
 
+    /**
+     * Brings this node up to date, also laying out the item slots if they
+     * have changed since.
+     */
+    @Override
+    protected void flushView() {
+        super.flushView();
+        if (slotsChanged) {
+            slotsChanged = false;
+            layoutSlots();
+        }
+    }
+
     /**
      * Layouts all the current player items within a radius circle around the player.
      */
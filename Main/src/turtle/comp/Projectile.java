@@ -14,6 +14,9 @@ public class Projectile extends Enemy {
     public static final int DEFAULT_IMAGE = 39;
     private static final long serialVersionUID = 6061618040424557089L;
 
+    //Straight, right, left, then back.
+    private static final Direction[][] TURNS = Direction.turnTable(0, 1, 3, 2);
+
     /**
      * Kills everything in its path. If successful in killing, it will die as
      * well.
@@ -41,6 +44,17 @@ public class Projectile extends Enemy {
         return true;
     }
 
+    /**
+     * Projectiles are spawned in large numbers by cannons, so they are drawn
+     * as sprites.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isSprite() {
+        return true;
+    }
+
     /**
      * Updates frames so that the projectile will move in its facing direction.
      * If per-say, it is blocked by something, it will attempt to turn
@@ -51,16 +65,9 @@ public class Projectile extends Enemy {
     public void updateFrame(long frame) {
         super.updateFrame(frame);
         if (!isMoving()) {
-            final int[] options = {0, 1, 3, 2};
-            Direction heading = getHeading();
-            for (int turn : options) {
-                Direction newDir = heading.turn(turn);
-                if (traverseDirection(newDir, true) ||
-                        turn == options[options.length - 1]) {
-                    setHeading(newDir);
-                    break;
-                }
-            }
+            Direction[] choices = TURNS[getHeading().ordinal()];
+            Direction moved = traverseFirst(choices);
+            setHeading(moved != null ? moved : choices[choices.length - 1]);
         }
     }
 }
@@ -36,4 +36,23 @@ public class Sand extends Cell {
         return true;
     }
 
+    /**
+     * Sand never changes, so it is static.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
+    /**
+     * Sand lets everyone pass, no matter what state it is in.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isPassStatic() {
+        return true;
+    }
 }
@@ -36,4 +36,34 @@ public class Wall extends Cell {
     public boolean checkPass(Actor visitor) {
         return false;
     }
+
+    /**
+     * A wall never changes, so it is static.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
+    /**
+     * A wall blocks the line of sight.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isOpaque() {
+        return true;
+    }
+
+    /**
+     * A wall blocks everyone, no matter what state it is in.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isPassStatic() {
+        return true;
+    }
 }
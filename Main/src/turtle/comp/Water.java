@@ -1,6 +1,7 @@
 package turtle.comp;
 
 import javafx.animation.Transition;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.ImageView;
 import javafx.util.Duration;
 import turtle.core.Actor;
@@ -114,6 +115,16 @@ public class Water extends Cell {
         return true;
     }
 
+    /**
+     * Draws the transforming to sand frames on top of the water.
+     *
+     * @param gc the graphics context of the canvas.
+     */
+    @Override
+    protected void drawOverlay(GraphicsContext gc) {
+        drawCentered(gc, top);
+    }
+
     /**
      * Initializes the top image.
      */
@@ -137,4 +148,14 @@ public class Water extends Cell {
         in.defaultReadObject();
         initTopImage();
     }
+
+    /**
+     * Water lets everyone pass, no matter what state it is in.
+     *
+     * @return true always.
+     */
+    @Override
+    public boolean isPassStatic() {
+        return true;
+    }
 }
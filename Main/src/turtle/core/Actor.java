@@ -64,6 +64,10 @@ public abstract class Actor extends Component {
 
         dying = true;
         dieFrame = 0;
+        Grid parent = getParentGrid();
+        if (parent != null) {
+            parent.opacityChanged(getHeadPosition());
+        }
         return true;
     }
 
@@ -81,7 +85,7 @@ public abstract class Actor extends Component {
      * @param heading the new direction heading to set
      */
     public void setHeading(Direction heading) {
-        setRotate(heading.ordinal() * RIGHT_ANGLE);
+        setViewRotate(heading.ordinal() * RIGHT_ANGLE);
         this.heading = heading;
     }
 
@@ -105,6 +109,31 @@ public abstract class Actor extends Component {
         return dead;
     }
 
+    /**
+     * Checks whether if this actor is drawn as a sprite. Sprites have no
+     * node of their own on the stage; instead, the grid draws all the
+     * sprites of a stage layer onto one canvas in a single batch after each
+     * frame. This is meant for plain actors that are spawned in large
+     * numbers. By default, actors are not sprites.
+     *
+     * @return true if this actor is a sprite, false otherwise.
+     */
+    @NotAttribute
+    public boolean isSprite() {
+        return false;
+    }
+
+    /**
+     * Checks whether if this actor blocks the line of sight, e.g. for the fog
+     * of war. By default, actors do not block sight.
+     *
+     * @return true if opaque, false if transparent.
+     */
+    @NotAttribute
+    public boolean isOpaque() {
+        return false;
+    }
+
     /**
      * Checks whether an interaction with another actor is possible.
      * This should suppress any actions done in the {@link #interact(Actor)}
@@ -144,6 +173,26 @@ public abstract class Actor extends Component {
         return traverseDirection(direction, true);
     }
 
+    /**
+     * Executes a move for an actor in the first of several directions that
+     * permits it. This is the same as trying {@link #traverseDirection(Direction)}
+     * on each direction in turn, but each direction is only checked once,
+     * rather than once to check and again to execute the move. As with
+     * {@link #traverseDirection(Direction)}, checking a direction may already
+     * make the residents there act, e.g. a door unlocks for a player holding
+     * its key.
+     *
+     * @param choices the directions to try, in order.
+     * @return the direction moved in, or null if no move was made.
+     */
+    public Direction traverseFirst(Direction... choices) {
+        Grid parent = getParentGrid();
+        if (parent == null) {
+            return null;
+        }
+        return parent.moveFirst(this, choices);
+    }
+
     /**
      * Checks or executes move for an actor in a specified direction.
      *
@@ -161,13 +210,11 @@ public abstract class Actor extends Component {
             return false;
         }
 
-        Location loc = new Location(getHeadLocation());
-        direction.traverse(loc);
-
+        long pos = direction.traverse(getHeadPosition());
         if (execute) {
-            return parent.moveActor(this, loc.getRow(), loc.getColumn());
+            return parent.moveActor(this, pos);
         } else {
-            return parent.checkMove(this, loc.getRow(), loc.getColumn());
+            return parent.checkMove(this, pos);
         }
     }
 
@@ -196,7 +243,7 @@ public abstract class Actor extends Component {
      * @return true if this actor is now "dead", false if it is still dying.
      */
     protected boolean dyingFrame(long dieFrame) {
-        setOpacity(1 - ((double) dieFrame / DYING_FRAMES));
+        setViewOpacity(1 - ((double) dieFrame / DYING_FRAMES));
         return dieFrame >= DYING_FRAMES;
     }
 
@@ -0,0 +1,222 @@
+package turtle.core;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static turtle.core.Grid.CELL_SIZE;
+
+/**
+ * Shows the static cells of a grid (flyweight cells, and cells shared with
+ * the grid this was forked from), baked into cached images. The grid is
+ * tiled into square chunks, and each chunk is drawn once onto a canvas of
+ * its own, then left alone until a cell within it changes (or comes into
+ * or goes out of sight). Static cells never update, and are always shown
+ * with their default image, so nothing else can change how they look.
+ * <p>
+ * Only the chunks around an area (i.e. the view window) have canvases,
+ * which are reused as the area moves.
+ *
+ * @author agent
+ * @see Cell#isStatic()
+ */
+final class BakedTerrain {
+    static final int CHUNK_SIZE = 4;
+
+    private static final double CHUNK_PIXELS = CHUNK_SIZE * CELL_SIZE;
+
+    private final Grid grid;
+    private final Pane pane;
+    private final int chunkRows;
+    private final int chunkCols;
+    private final Canvas[] chunks;
+    private final BitSet dirty;
+    private final ArrayDeque<Canvas> spares;
+    private final HashMap<Class<?>, Rectangle2D> frames;
+    private int areaTop;
+    private int areaLeft;
+    private int areaBottom;
+    private int areaRight;
+
+    /**
+     * Constructs the baked terrain of a grid, with every chunk yet to be
+     * baked.
+     *
+     * @param grid the grid.
+     * @param pane the pane to put the canvases of the chunks on. Anything
+     *             else on this pane stays on top of the chunks.
+     */
+    BakedTerrain(Grid grid, Pane pane) {
+        this.grid = grid;
+        this.pane = pane;
+        chunkRows = (grid.getRows() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkCols = (grid.getColumns() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunks = new Canvas[chunkRows * chunkCols];
+        dirty = new BitSet(chunks.length);
+        dirty.set(0, chunks.length);
+        spares = new ArrayDeque<>();
+        frames = new HashMap<>();
+    }
+
+    /**
+     * Notes that the cell at a location (or whether if it is in sight) might
+     * have changed, so its chunk is baked again.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    void invalidate(int row, int col) {
+        dirty.set(row / CHUNK_SIZE * chunkCols + col / CHUNK_SIZE);
+    }
+
+    /**
+     * Notes that every chunk has to be baked again.
+     */
+    void invalidateAll() {
+        dirty.set(0, chunks.length);
+    }
+
+    /**
+     * Bakes all the chunks that changed around an area of locations. Chunks
+     * that are now away from the area lose their canvases for reuse. Only
+     * the chunks around the area are ever looked at, so this costs the same
+     * no matter how large the grid is.
+     *
+     * @param top    the first row of the area.
+     * @param left   the first column of the area.
+     * @param bottom the row past the last row of the area.
+     * @param right  the column past the last column of the area.
+     */
+    void bake(int top, int left, int bottom, int right) {
+        int chunkTop = Math.max(0, top / CHUNK_SIZE);
+        int chunkLeft = Math.max(0, left / CHUNK_SIZE);
+        int chunkBottom = Math.min(chunkRows, (bottom + CHUNK_SIZE - 1) /
+                CHUNK_SIZE);
+        int chunkRight = Math.min(chunkCols, (right + CHUNK_SIZE - 1) /
+                CHUNK_SIZE);
+
+        boolean moved = chunkTop != areaTop || chunkLeft != areaLeft ||
+                chunkBottom != areaBottom || chunkRight != areaRight;
+        if (moved) {
+            for (int r = areaTop; r < areaBottom; r++)
+                for (int c = areaLeft; c < areaRight; c++) {
+                    int index = r * chunkCols + c;
+                    if (chunks[index] != null && (r < chunkTop || r >=
+                            chunkBottom || c < chunkLeft || c >= chunkRight)) {
+                        //Hide it for reuse, rather than taking it off the
+                        //stage.
+                        chunks[index].setVisible(false);
+                        spares.push(chunks[index]);
+                        chunks[index] = null;
+                    }
+                }
+            areaTop = chunkTop;
+            areaLeft = chunkLeft;
+            areaBottom = chunkBottom;
+            areaRight = chunkRight;
+        }
+
+        for (int r = chunkTop; r < chunkBottom; r++)
+            for (int c = chunkLeft; c < chunkRight; c++) {
+                int index = r * chunkCols + c;
+                if (chunks[index] == null) {
+                    chunks[index] = takeCanvas(r, c);
+                    dirty.set(index);
+                }
+                if (dirty.get(index)) {
+                    bakeChunk(r, c, chunks[index]);
+                    dirty.clear(index);
+                }
+            }
+        if (moved) {
+            trimSpares((chunkBottom - chunkTop) * (chunkRight - chunkLeft));
+        }
+    }
+
+    /**
+     * Takes a canvas for a chunk, reusing a spare one if there is any.
+     *
+     * @param row the row of the chunk (in chunks).
+     * @param col the column of the chunk (in chunks).
+     * @return the canvas, placed over the chunk.
+     */
+    private Canvas takeCanvas(int row, int col) {
+        Canvas canvas = spares.poll();
+        if (canvas == null) {
+            canvas = new Canvas(CHUNK_PIXELS, CHUNK_PIXELS);
+            canvas.setManaged(false);
+            canvas.setMouseTransparent(true);
+            pane.getChildren().add(0, canvas);
+        } else {
+            canvas.setVisible(true);
+        }
+        canvas.setTranslateX(col * CHUNK_PIXELS);
+        canvas.setTranslateY(row * CHUNK_PIXELS);
+        return canvas;
+    }
+
+    /**
+     * Takes the spare canvases off the stage, beyond as many as there are
+     * chunks around the area (the most that could ever be reused at once).
+     *
+     * @param max the number of spare canvases to keep.
+     */
+    private void trimSpares(int max) {
+        if (spares.size() <= max) {
+            return;
+        }
+        //A set, since the children are searched for each one to remove.
+        HashSet<Canvas> extra = new HashSet<>();
+        while (spares.size() > max)
+            extra.add(spares.pop());
+        pane.getChildren().removeAll(extra);
+    }
+
+    /**
+     * Draws all the static cells of a chunk that are in sight onto its
+     * canvas.
+     *
+     * @param row    the row of the chunk (in chunks).
+     * @param col    the column of the chunk (in chunks).
+     * @param canvas the canvas of the chunk.
+     */
+    private void bakeChunk(int row, int col, Canvas canvas) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, CHUNK_PIXELS, CHUNK_PIXELS);
+
+        int top = row * CHUNK_SIZE;
+        int left = col * CHUNK_SIZE;
+        for (int r = top; r < Math.min(grid.getRows(), top + CHUNK_SIZE); r++)
+            for (int c = left; c < Math.min(grid.getColumns(), left +
+                    CHUNK_SIZE); c++) {
+                Cell cell = grid.getCellAt(r, c);
+                if (cell != null && cell.getParentGrid() != grid && grid
+                        .isInSight(r, c)) {
+                    drawCell(gc, cell, (r - top) * CELL_SIZE, (c - left) *
+                            CELL_SIZE);
+                }
+            }
+    }
+
+    /**
+     * Draws a static cell with a plain image of its default image frame.
+     *
+     * @param gc   the graphics context of the canvas.
+     * @param comp the static cell.
+     * @param y    the y-coordinate to draw at.
+     * @param x    the x-coordinate to draw at.
+     */
+    private void drawCell(GraphicsContext gc, Cell comp, double y, double x) {
+        TileSet ts = comp.getTileSet();
+        Rectangle2D frame = frames.computeIfAbsent(comp.getClass(),
+                type -> ts.frameAt(Component.getDefaultImage(comp.getClass())));
+        gc.drawImage(ts.getImageSet(), frame.getMinX(), frame.getMinY(), frame
+                .getWidth(), frame.getHeight(), x, y, CELL_SIZE, CELL_SIZE);
+    }
+}
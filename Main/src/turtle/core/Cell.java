@@ -1,5 +1,7 @@
 package turtle.core;
 
+import java.io.Serializable;
+
 /**
  * Represents a immutable (mostly), immovable grid component, that falls
  * on the bottom layer of the grid.
@@ -38,6 +40,56 @@ public abstract class Cell extends Component {
      */
     public abstract boolean pass(Actor visitor);
 
+    /**
+     * Determines whether if this cell is static, i.e. it never changes any
+     * state after it is placed (other than its animation), and never
+     * refers back to its parent grid. Static cells can be shared between a
+     * grid and its forks.
+     *
+     * @return true if static, false if not static.
+     * @see Grid#fork()
+     */
+    public boolean isStatic() {
+        return false;
+    }
+
+    /**
+     * Determines whether if {@link #checkPass(Actor)} of this cell depends
+     * only on the class of the visitor, and never on the state of the
+     * visitor or of this cell. The grid caches the answer for such cells,
+     * so a transformation is the only way such a cell can change it.
+     *
+     * @return true if the pass check only depends on the visitor's class,
+     * false otherwise.
+     */
+    public boolean isPassStatic() {
+        return false;
+    }
+
+    /**
+     * Determines whether if this cell blocks the line of sight, e.g. for the
+     * fog of war. By default, cells do not block sight.
+     *
+     * @return true if opaque, false if transparent.
+     */
+    public boolean isOpaque() {
+        return false;
+    }
+
+    /**
+     * Writes the shared flyweight of a static cell class as a reference to
+     * that class, so that it resolves back to the one shared instance.
+     *
+     * @return the object to serialize in place of this cell.
+     * @see ComponentInfo#getFlyweight()
+     */
+    protected Object writeReplace() {
+        if (isStatic() && ComponentInfo.of(getClass()).getFlyweight() == this) {
+            return new Flyweight(getClass());
+        }
+        return this;
+    }
+
     /**
      * Utility method used to transform this cell into something else.
      * Of course, it doesn't literally change this cell, but it just
@@ -64,6 +116,17 @@ public abstract class Cell extends Component {
 
         frameTransform = waitFrames;
         transformed = other;
+        Location loc = getHeadLocation();
+        parent.cellChanged(loc.getRow(), loc.getColumn());
+    }
+
+    /**
+     * Checks whether if this cell is waiting to transform into another cell.
+     *
+     * @return true if transforming, false otherwise.
+     */
+    boolean isTransforming() {
+        return transformed != null;
     }
 
     /**
@@ -87,4 +150,31 @@ public abstract class Cell extends Component {
             }
         }
     }
+
+    /**
+     * Serialized reference to the flyweight of a static cell class.
+     */
+    private static class Flyweight implements Serializable {
+        private static final long serialVersionUID = 6215834046932775310L;
+
+        private final Class<? extends Cell> type;
+
+        /**
+         * Constructs a new reference to a flyweight.
+         *
+         * @param type the static cell class.
+         */
+        Flyweight(Class<? extends Cell> type) {
+            this.type = type;
+        }
+
+        /**
+         * Resolves this reference to the shared flyweight.
+         *
+         * @return the flyweight cell.
+         */
+        private Object readResolve() {
+            return ComponentInfo.of(type).getFlyweight();
+        }
+    }
 }
@@ -2,8 +2,10 @@ package turtle.core;
 
 import javafx.application.Platform;
 import javafx.geometry.HPos;
+import javafx.geometry.Rectangle2D;
 import javafx.geometry.VPos;
 import javafx.scene.Node;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.media.AudioClip;
@@ -34,8 +36,13 @@ public abstract class Component extends Pane implements Attributable,
     public static final int DEF_ANIMATION_FRAME_CHANGE = 4;
     public static final TileSet DEFAULT_SET = new TileSet();
     public static final int BIG_FRAME = 10;
+    public static final int CELL_UNITS = 1000;
+    public static final long NO_HANDLE = -1L;
 
     private static final int INVALID_IMAGE_FRAME = -2;
+    private static final int VIEW_TRANSLATE = 1;
+    private static final int VIEW_ROTATE = 2;
+    private static final int VIEW_OPACITY = 4;
     private static final long serialVersionUID = -65657197093045828L;
 
     private static final int SHUFFLE = 50;
@@ -63,26 +70,14 @@ public abstract class Component extends Pane implements Attributable,
      *
      * @param comp the class of the component
      * @return an index of the default image.
+     * @see ComponentInfo#getDefaultImage()
      */
     public static int getDefaultImage(Class<? extends Component> comp) {
         if (!Component.class.isAssignableFrom(comp)) {
             throw new IllegalArgumentException("Class provided must be a " +
                     "subclass to Component");
         }
-
-        Class<?> check = comp;
-        do {
-            try {
-                Field fld = check.getField("DEFAULT_IMAGE");
-                if (fld.getType() == int.class) {
-                    return fld.getInt(null);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                //Does nothing
-            }
-        }
-        while ((check = check.getSuperclass()) != Component.class);
-        return DEFAULT_IMAGE;
+        return ComponentInfo.of(comp).getDefaultImage();
     }
 
     public static AudioClip getCurrentClip() {
@@ -127,8 +122,17 @@ public abstract class Component extends Pane implements Attributable,
 
     private transient TileSet ts;
     private transient ImageView img;
+    private transient Rectangle2D viewport;
+    private transient boolean viewQueued;
+    private transient int viewChanges;
+    private transient double viewRotate;
+    private transient double viewOpacity;
+    transient int registrySlot = -1;
+    long handle = NO_HANDLE;
 
     private Grid parent;
+    private int unitX;
+    private int unitY;
     private long curFrame;
     private int currentImage;
     private long animationOffset;
@@ -203,6 +207,19 @@ public abstract class Component extends Pane implements Attributable,
         return attributes;
     }
 
+    /**
+     * Obtains the handle that the grid gave this component when it was
+     * placed. The handle stays the same in copies and forks of that grid,
+     * so it can refer to this component across them.
+     *
+     * @return the packed handle, or {@link #NO_HANDLE} if never placed.
+     * @see Grid#lookup(long)
+     */
+    @NotAttribute
+    public long getHandle() {
+        return handle;
+    }
+
     /**
      * @return the head location of the actor
      */
@@ -212,13 +229,23 @@ public abstract class Component extends Pane implements Attributable,
     }
 
     /**
-     * Obtains the move speed of this component.
+     * @return the head location of the actor, packed into a long.
+     * @see Location#pack(int, int)
+     */
+    @NotAttribute
+    public long getHeadPosition() {
+        return headLoc.pack();
+    }
+
+    /**
+     * Obtains the move speed of this component. The speed is measured in
+     * sub-cell units, where a cell is {@link #CELL_UNITS} units across.
      *
-     * @return move speed in pixels per frame
+     * @return move speed in units per frame
      */
     @NotAttribute
-    public double getMoveSpeed() {
-        return Grid.CELL_SIZE / BIG_FRAME;
+    public int getMoveSpeed() {
+        return CELL_UNITS / BIG_FRAME;
     }
 
     /**
@@ -246,6 +273,15 @@ public abstract class Component extends Pane implements Attributable,
         return trailLoc;
     }
 
+    /**
+     * @return the trailing location of the actor, packed into a long.
+     * @see Location#pack(int, int)
+     */
+    @NotAttribute
+    public long getTrailingPosition() {
+        return trailLoc.pack();
+    }
+
     /**
      * Determines whether if this component is moving.
      *
@@ -312,7 +348,8 @@ public abstract class Component extends Pane implements Attributable,
             throw new IllegalStateException("Must be on Fx thread");
         }
 
-        if (getParentGrid() == null || !getParentGrid().isPlaying()) {
+        if (getParentGrid() == null || !getParentGrid().isPlaying() ||
+                !getParentGrid().isSoundsEnabled()) {
             return;
         }
 
@@ -343,31 +380,23 @@ public abstract class Component extends Pane implements Attributable,
     }
 
     /**
-     * Obtains next step of incrementing a value
+     * Obtains next step of moving a value towards a goal.
      *
      * @param from initial value
      * @param to   the goal value to achieve
-     * @param step the increment value per step
-     * @return the next value to increment to.
+     * @param step the distance to move per step
+     * @return the next value to move to, stopping at the goal.
      * @throws IllegalArgumentException if step is zero.
      */
-    private double increment(double from, double to, double step) {
+    private static int approach(int from, int to, int step) {
         if (step == 0) {
             throw new IllegalArgumentException("Step must be non-zero.");
         }
-        if (from == to) {
-            return to;
-        }
-        if (from < to ^ step > 0) {
-            return increment(from, to, -step);
-        }
-
-        double after = from + step;
-        if (after > to ^ from > to) {
-            // Incremented pass the target.
-            return to;
+        step = Math.abs(step);
+        if (from < to) {
+            return Math.min(from + step, to);
         } else {
-            return after;
+            return Math.max(from - step, to);
         }
     }
 
@@ -379,23 +408,258 @@ public abstract class Component extends Pane implements Attributable,
             boolean validLocs = headLoc.isValidLocation() &&
                     trailLoc.isValidLocation();
             if (validLocs) {
-                double speed = getMoveSpeed();
-                int xPos = CELL_SIZE * headLoc.getColumn();
-                int yPos = CELL_SIZE * headLoc.getRow();
-                if (xPos != getTranslateX()) {
-                    setTranslateX(increment(getTranslateX(), xPos, speed));
-                }
-                if (yPos != getTranslateY()) {
-                    setTranslateY(increment(getTranslateY(), yPos, speed));
+                int speed = getMoveSpeed();
+                int xPos = CELL_UNITS * headLoc.getColumn();
+                int yPos = CELL_UNITS * headLoc.getRow();
+                if (xPos != unitX || yPos != unitY) {
+                    unitX = approach(unitX, xPos, speed);
+                    unitY = approach(unitY, yPos, speed);
+                    changeView(VIEW_TRANSLATE);
                 }
 
-                if (xPos == getTranslateX() && yPos == getTranslateY()) {
+                if (xPos == unitX && yPos == unitY) {
                     trailLoc.setLocation(headLoc);
                 }
             }
         }
     }
 
+    /**
+     * Puts this component right at its head location, without moving
+     * through the cells in between. This should only be called internally
+     * by Grid when this is added.
+     */
+    void snapToHead() {
+        unitX = CELL_UNITS * headLoc.getColumn();
+        unitY = CELL_UNITS * headLoc.getRow();
+        changeView(VIEW_TRANSLATE);
+    }
+
+    /**
+     * Obtains the period with which this component depends on the absolute
+     * frame number, e.g. a component that acts on every n-th frame of the
+     * game has a period of n. Components that only measure frames relative
+     * to one another (such as animations) do not depend on the absolute
+     * frame number.
+     *
+     * @return the period in frames, or 1 if this component does not depend
+     * on the absolute frame number.
+     * @see FastForward
+     */
+    protected int getFramePeriod() {
+        return 1;
+    }
+
+    /**
+     * Shifts all the frame numbers kept by this component, as if everything
+     * so far had happened some frames later. Subclasses that keep frame
+     * numbers of their own must override this, calling this super method.
+     *
+     * @param delta the number of frames to shift by.
+     * @see FastForward
+     */
+    protected void shiftFrames(long delta) {
+        curFrame += delta;
+        if (animationOffset != -1) {
+            animationOffset += delta;
+        }
+    }
+
+    /**
+     * Shifts all the locations kept by this component by an offset, as if
+     * everything had happened that many cells away. This moves the component
+     * itself (including any motion in progress) along with its node.
+     * Subclasses that keep locations of their own must override this,
+     * calling this super method.
+     *
+     * @param dRows the number of rows to shift by.
+     * @param dCols the number of columns to shift by.
+     * @see Grid#shiftWorld(int, int)
+     */
+    protected void shiftLocation(int dRows, int dCols) {
+        if (headLoc.isValidLocation()) {
+            headLoc.setLocation(headLoc.getRow() + dRows, headLoc.getColumn() +
+                    dCols);
+        }
+        if (trailLoc.isValidLocation()) {
+            trailLoc.setLocation(trailLoc.getRow() + dRows, trailLoc
+                    .getColumn() + dCols);
+        }
+        unitX += CELL_UNITS * dCols;
+        unitY += CELL_UNITS * dRows;
+        changeView(VIEW_TRANSLATE);
+    }
+
+    /**
+     * Checks whether if this component can be drawn onto a canvas instead of
+     * having a node on the stage, i.e. whether if
+     * {@link #drawOn(GraphicsContext)} shows everything its node would.
+     * Components that cannot be drawn always keep a node, even when the grid
+     * renders in batches. By default, components can be drawn.
+     *
+     * @return true if this component can be drawn, false otherwise.
+     * @see Grid#setBatchRendering(boolean)
+     */
+    @NotAttribute
+    public boolean isDrawable() {
+        return true;
+    }
+
+    /**
+     * Draws the current image of this component onto a canvas, just as its
+     * own node would be displayed (with its translation, rotation and
+     * opacity). This is used for components that are drawn in batches
+     * instead of having a node on the stage.
+     *
+     * @param gc the graphics context of the canvas.
+     */
+    void drawOn(GraphicsContext gc) {
+        if (viewport == null) {
+            return;
+        }
+
+        double half = CELL_SIZE / 2.0;
+        gc.save();
+        gc.setGlobalAlpha(getOpacity());
+        gc.translate(getTranslateX() + half, getTranslateY() + half);
+        gc.rotate(getRotate());
+        gc.drawImage(ts.getImageSet(), viewport.getMinX(), viewport.getMinY(),
+                viewport.getWidth(), viewport.getHeight(), -half, -half,
+                CELL_SIZE, CELL_SIZE);
+        drawOverlay(gc);
+        gc.restore();
+    }
+
+    /**
+     * Draws whatever else the node of this component displays on top of its
+     * image onto a canvas. The canvas is already centered on this component
+     * and rotated along with it. Subclasses that add other images to their
+     * node should draw them here. By default, there is nothing else to draw.
+     *
+     * @param gc the graphics context of the canvas.
+     * @see #drawCentered(GraphicsContext, ImageView)
+     */
+    protected void drawOverlay(GraphicsContext gc) {
+        //Does nothing
+    }
+
+    /**
+     * Draws an image view onto a canvas centered at the origin, just as it
+     * would be displayed (centered) within the node of a component, with its
+     * own size and rotation.
+     *
+     * @param gc   the graphics context of the canvas.
+     * @param view the image view to draw.
+     */
+    protected static void drawCentered(GraphicsContext gc, ImageView view) {
+        Rectangle2D frame = view.getViewport();
+        if (!view.isVisible() || view.getImage() == null || frame == null) {
+            return;
+        }
+
+        double width = view.getFitWidth() > 0 ? view.getFitWidth() : frame
+                .getWidth();
+        double height = view.getFitHeight() > 0 ? view.getFitHeight() : frame
+                .getHeight();
+        gc.save();
+        gc.rotate(view.getRotate());
+        gc.drawImage(view.getImage(), frame.getMinX(), frame.getMinY(), frame
+                .getWidth(), frame.getHeight(), -width / 2, -height / 2, width,
+                height);
+        gc.restore();
+    }
+
+    /**
+     * Updates the translation of this node to display the sub-cell position
+     * of this component. This is the only place that the motion model is
+     * converted into pixels.
+     */
+    private void updateTranslate() {
+        double x = (double) unitX * CELL_SIZE / CELL_UNITS;
+        double y = (double) unitY * CELL_SIZE / CELL_UNITS;
+        if (getTranslateX() != x) {
+            setTranslateX(x);
+        }
+        if (getTranslateY() != y) {
+            setTranslateY(y);
+        }
+    }
+
+    /**
+     * Sets the rotation that this node should display. Like all the other
+     * view changes, this is buffered while the grid is updating a frame.
+     *
+     * @param angle the angle of rotation, in degrees.
+     * @see #invalidateView()
+     */
+    protected void setViewRotate(double angle) {
+        viewRotate = angle;
+        changeView(VIEW_ROTATE);
+    }
+
+    /**
+     * Sets the opacity that this node should display. Like all the other
+     * view changes, this is buffered while the grid is updating a frame.
+     *
+     * @param opacity the opacity, from 0 to 1.
+     * @see #invalidateView()
+     */
+    protected void setViewOpacity(double opacity) {
+        viewOpacity = opacity;
+        changeView(VIEW_OPACITY);
+    }
+
+    /**
+     * Marks that this node no longer displays the state of this component.
+     * While the parent grid is updating a frame, this only queues the
+     * component, and its node is brought up to date (with
+     * {@link #flushView()}) once, after the frame. This way, a component
+     * that changes many times within a frame (or changes back) only writes
+     * to its node once, if at all. Otherwise, the node is updated right away.
+     */
+    protected final void invalidateView() {
+        if (viewQueued) {
+            return;
+        }
+        if (parent != null && parent.deferView(this)) {
+            viewQueued = true;
+        } else {
+            flushView();
+        }
+    }
+
+    /**
+     * Brings this node up to date with the state of this component. This
+     * skips any value that the node already displays. Subclasses that keep
+     * other view changes of their own should apply them here as well,
+     * calling this super method.
+     */
+    protected void flushView() {
+        viewQueued = false;
+        int changes = viewChanges;
+        viewChanges = 0;
+
+        if ((changes & VIEW_TRANSLATE) != 0) {
+            updateTranslate();
+        }
+        if ((changes & VIEW_ROTATE) != 0 && getRotate() != viewRotate) {
+            setRotate(viewRotate);
+        }
+        if ((changes & VIEW_OPACITY) != 0 && getOpacity() != viewOpacity) {
+            setOpacity(viewOpacity);
+        }
+    }
+
+    /**
+     * Records one kind of view change and invalidates the view.
+     *
+     * @param change the bit of the changed view property.
+     */
+    private void changeView(int change) {
+        viewChanges |= change;
+        invalidateView();
+    }
+
     /**
      * Internally sets the current image viewport to a specific frame.
      * This will avoid setting the viewport to the same index twice in a row
@@ -407,7 +671,8 @@ public abstract class Component extends Pane implements Attributable,
         if (currentImage == index) {
             return;
         }
-        img.setViewport(ts.frameAt(index));
+        viewport = ts.frameAt(index);
+        img.setViewport(viewport);
         currentImage = index;
     }
 
@@ -421,6 +686,10 @@ public abstract class Component extends Pane implements Attributable,
         if (animationOffset != -1 && (frame - animationOffset) % changeRate == 0) {
             int stepInd = (int) ((frame - animationOffset) / changeRate);
             if (animationCycle) {
+                if (getParentGrid() != null && !getParentGrid()
+                        .hasCosmeticAnimations()) {
+                    return;
+                }
                 stepInd %= imageFrames.length;
                 setViewport(imageFrames[stepInd]);
             } else {
@@ -444,18 +713,11 @@ public abstract class Component extends Pane implements Attributable,
     private void readObject(ObjectInputStream in)
             throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        setTranslateX(in.readDouble());
-        setTranslateY(in.readDouble());
+        updateTranslate();
 
+        //Every component is constructed with the default tile-set.
         int frame = currentImage;
-        try {
-            Component c = getClass().newInstance();
-            initTileSet(c.getTileSet());
-        } catch (InstantiationException | IllegalAccessException e) {
-            e.printStackTrace();
-            throw new IOException("Unable to obtain default Component " +
-                    "constructor");
-        }
+        initTileSet(DEFAULT_SET);
         setViewport(frame);
     }
 
@@ -468,7 +730,5 @@ public abstract class Component extends Pane implements Attributable,
     private void writeObject(ObjectOutputStream out)
             throws IOException {
         out.defaultWriteObject();
-        out.writeDouble(getTranslateX());
-        out.writeDouble(getTranslateY());
     }
 }
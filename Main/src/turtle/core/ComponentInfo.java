@@ -0,0 +1,203 @@
+package turtle.core;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+/**
+ * Holds the reflective metadata of a component class, such as its default
+ * image and its constructor. This is computed only once for each class, so
+ * it can be used freely while building or copying levels.
+ *
+ * @param <T> the type of component described.
+ * @author agent
+ */
+public final class ComponentInfo<T extends Component> {
+    private static final ClassValue<ComponentInfo<?>> infos =
+            new ClassValue<ComponentInfo<?>>() {
+                @Override
+                protected ComponentInfo<?> computeValue(Class<?> type) {
+                    return new ComponentInfo<>(type.asSubclass(Component
+                            .class));
+                }
+            };
+
+    private final Class<T> type;
+    private final int defaultImage;
+    private final Constructor<T> constructor;
+
+    private boolean prototyped;
+    private boolean headingMatters;
+    private Cell flyweight;
+    private Actor sample;
+
+    /**
+     * Constructs the metadata of a component class.
+     *
+     * @param type the component class.
+     */
+    private ComponentInfo(Class<T> type) {
+        this.type = type;
+        this.defaultImage = findDefaultImage(type);
+        this.constructor = findConstructor(type);
+    }
+
+    /**
+     * Obtains the metadata of a component class.
+     *
+     * @param type the component class
+     * @param <T>  the type of component.
+     * @return the metadata of that class.
+     * @throws ClassCastException if the class is not a component class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Component> ComponentInfo<T> of(Class<T> type) {
+        return (ComponentInfo<T>) infos.get(type);
+    }
+
+    /**
+     * Searches for the DEFAULT_IMAGE field of a class. If this class does
+     * not define a default image, this will search up the hierarchy until the
+     * field is found.
+     *
+     * @param type the component class.
+     * @return an index of the default image.
+     */
+    private static int findDefaultImage(Class<?> type) {
+        try {
+            Field fld = type.getField("DEFAULT_IMAGE");
+            if (fld.getType() == int.class) {
+                return fld.getInt(null);
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            //Does nothing
+        }
+        return Component.DEFAULT_IMAGE;
+    }
+
+    /**
+     * Searches for the public no-arg constructor of a class.
+     *
+     * @param type the component class.
+     * @param <T>  the type of component.
+     * @return the constructor, or null if the class cannot be constructed.
+     */
+    private static <T> Constructor<T> findConstructor(Class<T> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            return type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the index of the default image of this component class.
+     */
+    public int getDefaultImage() {
+        return defaultImage;
+    }
+
+    /**
+     * Obtains the single shared instance of this cell class, if this is a
+     * static cell class. Such an instance can fill any number of locations
+     * at once through {@link Grid#placeCell(Cell, int, int)}.
+     *
+     * @return the shared cell, or null if this cell class is not static (or
+     * if this is not a cell class).
+     */
+    public Cell getFlyweight() {
+        prototype();
+        return flyweight;
+    }
+
+    /**
+     * Obtains a sample actor of this class that is never placed in any grid.
+     * This can stand in for any actor of this class in checks that depend
+     * only on the class of the actor.
+     *
+     * @return the sample actor, or null if this is not an actor class.
+     * @see Cell#isPassStatic()
+     */
+    Actor getSample() {
+        prototype();
+        return sample;
+    }
+
+    /**
+     * @return the component class described.
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Determines whether if the heading of an actor of this class can be
+     * changed, i.e. whether if its heading matters.
+     *
+     * @return true if it matters, false if it doesn't (or if this is not an
+     * actor class).
+     */
+    public boolean isHeadingSensitive() {
+        prototype();
+        return headingMatters;
+    }
+
+    /**
+     * Constructs a new component of this class.
+     *
+     * @return a brand new component.
+     * @throws IllegalStateException if the component cannot be created.
+     */
+    public T newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException("No no-arg constructor found");
+        }
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException |
+                InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create component", e);
+        }
+    }
+
+    /**
+     * Constructs a prototype component of this class once, to compute the
+     * metadata that can only be obtained from an instance. A prototype of a
+     * static cell is kept as its flyweight.
+     */
+    private synchronized void prototype() {
+        if (prototyped) {
+            return;
+        }
+        prototyped = true;
+
+        if (constructor == null) {
+            return;
+        }
+        if (Cell.class.isAssignableFrom(type)) {
+            Cell c = (Cell) newInstance();
+            if (c.isStatic()) {
+                flyweight = c;
+            }
+            return;
+        }
+        if (!Actor.class.isAssignableFrom(type)) {
+            return;
+        }
+
+        Actor a = (Actor) newInstance();
+
+        Direction before = a.getHeading();
+        if (before == Direction.NORTH) {
+            a.setHeading(Direction.EAST);
+        } else {
+            a.setHeading(Direction.NORTH);
+        }
+        headingMatters = a.getHeading() != before;
+        sample = a;
+    }
+}
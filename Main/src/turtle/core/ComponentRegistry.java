@@ -0,0 +1,208 @@
+package turtle.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Keeps an ordered list of the components of one kind that a grid owns, so
+ * that the grid can walk through them every frame without copying any
+ * lists. The registry can be safely changed while a pass is iterating it.
+ * A pass always sees the registry as it was when the pass began: components
+ * added during a pass are not visited until the next pass, and components
+ * removed during a pass are still visited by it, but their stale slots are
+ * only compacted out once the pass ends.
+ *
+ * @param <T> the type of component held.
+ * @author agent
+ */
+final class ComponentRegistry<T extends Component> implements Iterable<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Component[] items;
+    private boolean[] live;
+    private int size;
+    private int stale;
+    private int passEnd;
+    private boolean passing;
+
+    /**
+     * Constructs an empty registry.
+     */
+    ComponentRegistry() {
+        items = new Component[INITIAL_CAPACITY];
+        live = new boolean[INITIAL_CAPACITY];
+        size = 0;
+        stale = 0;
+        passEnd = 0;
+        passing = false;
+    }
+
+    /**
+     * Appends a component to the end of this registry.
+     *
+     * @param comp the component to add.
+     */
+    void add(T comp) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            live = Arrays.copyOf(live, size * 2);
+        }
+        comp.registrySlot = size;
+        live[size] = true;
+        items[size++] = comp;
+    }
+
+    /**
+     * Removes a component from this registry. If a pass is running, its slot
+     * is kept (so that the pass still visits it) until the pass ends.
+     *
+     * @param comp the component to remove.
+     * @return true if the component was in this registry, false otherwise.
+     */
+    boolean remove(T comp) {
+        if (!contains(comp)) {
+            return false;
+        }
+        int slot = comp.registrySlot;
+        comp.registrySlot = -1;
+        live[slot] = false;
+        stale++;
+        if (!passing) {
+            items[slot] = null;
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether if a component is held by this registry.
+     *
+     * @param comp the component to check.
+     * @return true if it is contained, false otherwise.
+     */
+    boolean contains(Component comp) {
+        int slot = comp.registrySlot;
+        return slot >= 0 && slot < size && items[slot] == comp && live[slot];
+    }
+
+    /**
+     * @return the number of live components in this registry.
+     */
+    int size() {
+        return size - stale;
+    }
+
+    /**
+     * Starts a pass over this registry. Only the components registered at
+     * this point will be visited by {@link #pass()}.
+     */
+    void beginPass() {
+        passing = true;
+        passEnd = size;
+    }
+
+    /**
+     * Ends a pass over this registry, compacting out any stale slots.
+     */
+    void endPass() {
+        passing = false;
+        passEnd = 0;
+        compact();
+    }
+
+    /**
+     * Iterates through the components registered when the current pass
+     * began, including those that have since been removed.
+     *
+     * @return an iterable view of this pass.
+     * @throws IllegalStateException if no pass has been started.
+     */
+    Iterable<T> pass() {
+        if (!passing) {
+            throw new IllegalStateException("No pass has been started.");
+        }
+        return () -> new RegistryIterator(passEnd, false);
+    }
+
+    /**
+     * Iterates through all the live components in this registry.
+     *
+     * @return an iterator through the components.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new RegistryIterator(size, true);
+    }
+
+    /**
+     * Compacts out all the stale slots, preserving the order of the
+     * remaining components.
+     */
+    private void compact() {
+        if (stale == 0) {
+            return;
+        }
+
+        int dest = 0;
+        for (int i = 0; i < size; i++) {
+            Component comp = items[i];
+            if (live[i]) {
+                comp.registrySlot = dest;
+                live[dest] = true;
+                items[dest++] = comp;
+            }
+        }
+        Arrays.fill(items, dest, size, null);
+        Arrays.fill(live, dest, size, false);
+        size = dest;
+        stale = 0;
+    }
+
+    /**
+     * Iterates through the slots of this registry up to a fixed bound.
+     */
+    private class RegistryIterator implements Iterator<T> {
+        private final int end;
+        private final boolean liveOnly;
+        private int next;
+
+        /**
+         * Constructs a new iterator.
+         *
+         * @param end      the (exclusive) slot index to stop at.
+         * @param liveOnly true to skip the stale slots of removed components.
+         */
+        RegistryIterator(int end, boolean liveOnly) {
+            this.end = end;
+            this.liveOnly = liveOnly;
+            this.next = 0;
+            skip();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T comp = (T) items[next++];
+            skip();
+            return comp;
+        }
+
+        /**
+         * Skips past all the empty (or stale, if requested) slots.
+         */
+        private void skip() {
+            while (next < end && (items[next] == null ||
+                    (liveOnly && !live[next])))
+                next++;
+        }
+    }
+}
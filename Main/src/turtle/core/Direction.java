@@ -7,6 +7,8 @@ package turtle.core;
 public enum Direction {
     NORTH(-1, 0), EAST(0, 1), SOUTH(1, 0), WEST(0, -1);
 
+    private static final Direction[] VALUES = values();
+
     private int rowIncrement;
     private int colIncrement;
 
@@ -31,6 +33,20 @@ public enum Direction {
         return dirs[(int) (Math.random() * dirs.length)];
     }
 
+    /**
+     * @return the change in row when moving in this direction.
+     */
+    public int getRowIncrement() {
+        return rowIncrement;
+    }
+
+    /**
+     * @return the change in column when moving in this direction.
+     */
+    public int getColumnIncrement() {
+        return colIncrement;
+    }
+
     /**
      * Moves direction num turns clockwise and obtains the resulting direction
      *
@@ -38,8 +54,25 @@ public enum Direction {
      * @return the resulting direction after turns.
      */
     public Direction turn(int num) {
-        Direction[] dirs = Direction.values();
-        return dirs[(ordinal() + num) % dirs.length];
+        return VALUES[(ordinal() + num) % VALUES.length];
+    }
+
+    /**
+     * Builds a table of the directions reached by a list of turns from each
+     * direction. Actors that try the same turns every time they move can
+     * look their choices up in such a table instead of building them anew.
+     *
+     * @param nums the numbers of clockwise turns, in order.
+     * @return a table indexed by the ordinal of the initial direction, listing
+     * the resulting direction of each turn.
+     * @see #turn(int)
+     */
+    public static Direction[][] turnTable(int... nums) {
+        Direction[][] table = new Direction[VALUES.length][nums.length];
+        for (Direction dir : VALUES)
+            for (int i = 0; i < nums.length; i++)
+                table[dir.ordinal()][i] = dir.turn(nums[i]);
+        return table;
     }
 
     /**
@@ -50,4 +83,24 @@ public enum Direction {
     public void traverse(Location pos) {
         pos.setLocation(pos.getRow() + rowIncrement, pos.getColumn() + colIncrement);
     }
+
+    /**
+     * Traverses a packed location in this direction. Only the lower bounds
+     * are known here, so a position past the last row or column of a grid is
+     * still returned, and must be checked against the grid by the caller,
+     * e.g. with {@link Grid#isValidLocation(long)}.
+     *
+     * @param pos the initial packed position
+     * @return the resulting packed position, or {@link Location#INVALID} if
+     * its row or column would be negative (or the initial position was
+     * invalid).
+     * @see Location#pack(int, int)
+     */
+    public long traverse(long pos) {
+        if (!Location.isValid(pos)) {
+            return Location.INVALID;
+        }
+        return Location.pack(Location.rowOf(pos) + rowIncrement,
+                Location.columnOf(pos) + colIncrement);
+    }
 }
@@ -0,0 +1,179 @@
+package turtle.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Represents the way that a grid steps its components every frame. The
+ * strict profile updates every component on every frame, and is the only
+ * profile that plays back the same as the original engine. Any other
+ * profile changes the outcome of a game, so it is saved along with a
+ * recording to play it back with the same profile.
+ *
+ * @author agent
+ */
+public final class EngineProfile implements Serializable {
+    public static final EngineProfile STRICT = new EngineProfile((byte) 0,
+            0, 1);
+
+    private static final long serialVersionUID = 3385102419867346253L;
+    private static final byte TYPE_STRICT = 0;
+    private static final byte TYPE_LEVEL_OF_DETAIL = 1;
+
+    private final byte type;
+    private final int radius;
+    private final int interval;
+
+    /**
+     * Constructs a new engine profile.
+     *
+     * @param type     the type id of this profile.
+     * @param radius   the radius of cells around the player that are always
+     *                 updated.
+     * @param interval the number of frames between each update outside of
+     *                 that radius.
+     */
+    private EngineProfile(byte type, int radius, int interval) {
+        this.type = type;
+        this.radius = radius;
+        this.interval = interval;
+    }
+
+    /**
+     * Creates a level-of-detail profile. Regions of the grid that are
+     * beyond a certain radius from the player are only updated once every
+     * so many frames.
+     *
+     * @param radius   the radius (in cells) around the player that is always
+     *                 updated every frame.
+     * @param interval the number of frames between each update of regions
+     *                 beyond that radius.
+     * @return a level-of-detail profile.
+     * @throws IllegalArgumentException if the radius is negative or the
+     *                                  interval is not positive.
+     */
+    public static EngineProfile levelOfDetail(int radius, int interval) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must be non-negative.");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        return new EngineProfile(TYPE_LEVEL_OF_DETAIL, radius, interval);
+    }
+
+    /**
+     * Reads an engine profile from a data input.
+     *
+     * @param in the input to read from.
+     * @return the profile read.
+     * @throws IOException if data is corrupted or has illegal format.
+     */
+    static EngineProfile read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_STRICT:
+                return STRICT;
+            case TYPE_LEVEL_OF_DETAIL:
+                int radius = in.readInt();
+                int interval = in.readInt();
+                if (radius < 0 || interval < 1) {
+                    throw new IOException("Illegal level of detail");
+                }
+                return new EngineProfile(type, radius, interval);
+            default:
+                throw new IOException("Illegal engine profile");
+        }
+    }
+
+    /**
+     * Writes this engine profile to a data output.
+     *
+     * @param out the output to write to.
+     * @throws IOException if an I/O error occurs while writing
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(type);
+        if (type == TYPE_LEVEL_OF_DETAIL) {
+            out.writeInt(radius);
+            out.writeInt(interval);
+        }
+    }
+
+    /**
+     * @return the number of frames between each update of regions beyond
+     * the radius of the player (always 1 for strict profiles).
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the radius (in cells) around the player that is always updated.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * @return true if this updates every component on every frame.
+     */
+    public boolean isStrict() {
+        return type == TYPE_STRICT;
+    }
+
+    /**
+     * @return a hashcode generated from this profile.
+     */
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + type;
+        result = prime * result + radius;
+        result = prime * result + interval;
+        return result;
+    }
+
+    /**
+     * Tests whether if two engine profiles are equal.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        EngineProfile other = (EngineProfile) obj;
+        return type == other.type && radius == other.radius &&
+                interval == other.interval;
+    }
+
+    /**
+     * @return a string representation of this profile.
+     */
+    @Override
+    public String toString() {
+        if (isStrict()) {
+            return "STRICT";
+        }
+        return "LEVEL_OF_DETAIL(radius=" + radius + ", interval=" + interval +
+                ")";
+    }
+
+    /**
+     * Resolves the strict profile to its one instance.
+     *
+     * @return the resolved profile.
+     */
+    private Object readResolve() {
+        return isStrict() ? STRICT : this;
+    }
+}
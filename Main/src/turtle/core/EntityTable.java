@@ -0,0 +1,184 @@
+package turtle.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Hands out compact generational handles to the components placed in a
+ * grid, and finds components by their handles. A handle packs the index of
+ * a slot of this table with the generation of that slot, so a handle can be
+ * looked up with a single array access, and a handle of a removed component
+ * never resolves to whichever component reuses its slot. Slots are reused in
+ * a fixed order, so a copy of a grid hands out the same handles as the
+ * original would.
+ *
+ * @author agent
+ */
+final class EntityTable implements Serializable {
+    private static final long serialVersionUID = -2291708384413360752L;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Component[] items;
+    private int[] generations;
+    private int[] free;
+    private int freeCount;
+    private int size;
+
+    /**
+     * Constructs an empty table.
+     */
+    EntityTable() {
+        items = new Component[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        free = new int[INITIAL_CAPACITY];
+        freeCount = 0;
+        size = 0;
+    }
+
+    /**
+     * Copies another table.
+     *
+     * @param other the table to copy from.
+     */
+    private EntityTable(EntityTable other) {
+        items = other.items.clone();
+        generations = other.generations.clone();
+        free = other.free.clone();
+        freeCount = other.freeCount;
+        size = other.size;
+    }
+
+    /**
+     * Packs a slot index and generation into a handle.
+     *
+     * @param index      the slot index.
+     * @param generation the generation of the slot.
+     * @return the packed handle.
+     */
+    static long pack(int index, int generation) {
+        return ((long) generation << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param handle a packed handle.
+     * @return the slot index of the handle.
+     */
+    static int indexOf(long handle) {
+        return (int) handle;
+    }
+
+    /**
+     * @param handle a packed handle.
+     * @return the generation of the handle.
+     */
+    static int generationOf(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    /**
+     * Allocates a handle for a component, and assigns it to the component.
+     *
+     * @param comp the component to add.
+     * @return the new handle.
+     */
+    long add(Component comp) {
+        int index;
+        if (freeCount > 0) {
+            index = free[--freeCount];
+        } else {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                generations = Arrays.copyOf(generations, size * 2);
+                free = Arrays.copyOf(free, size * 2);
+            }
+            index = size++;
+        }
+
+        items[index] = comp;
+        comp.handle = pack(index, generations[index]);
+        return comp.handle;
+    }
+
+    /**
+     * Releases the handle of a component. The slot's generation is bumped so
+     * that the old handle no longer resolves. The component keeps its old
+     * handle, since it might still be shared with another grid.
+     *
+     * @param comp the component to remove.
+     * @return true if the component was in this table, false otherwise.
+     */
+    boolean remove(Component comp) {
+        if (!contains(comp)) {
+            return false;
+        }
+        int index = indexOf(comp.handle);
+        items[index] = null;
+        generations[index]++;
+        free[freeCount++] = index;
+        return true;
+    }
+
+    /**
+     * Determines whether if a component is held by this table.
+     *
+     * @param comp the component to check.
+     * @return true if it is contained, false otherwise.
+     */
+    boolean contains(Component comp) {
+        return get(comp.handle) == comp;
+    }
+
+    /**
+     * Finds the component with a particular handle.
+     *
+     * @param handle the handle of the component.
+     * @return the component, or null if the handle is stale or invalid.
+     */
+    Component get(long handle) {
+        int index = indexOf(handle);
+        if (index < 0 || index >= size || generations[index] !=
+                generationOf(handle)) {
+            return null;
+        }
+        return items[index];
+    }
+
+    /**
+     * Replaces the component held under a handle with a copy of it, which
+     * must carry the same handle.
+     *
+     * @param comp the copied component.
+     * @throws IllegalArgumentException if the handle of the component is not
+     *                                  held by this table.
+     */
+    void replace(Component comp) {
+        if (get(comp.handle) == null) {
+            throw new IllegalArgumentException("Handle is not held.");
+        }
+        items[indexOf(comp.handle)] = comp;
+    }
+
+    /**
+     * @return the number of slots in use, including empty ones.
+     */
+    int capacity() {
+        return size;
+    }
+
+    /**
+     * Obtains the component in a slot.
+     *
+     * @param index the slot index.
+     * @return the component, or null if the slot is empty.
+     */
+    Component at(int index) {
+        return items[index];
+    }
+
+    /**
+     * @return a copy of this table, holding the same components.
+     */
+    EntityTable copy() {
+        return new EntityTable(this);
+    }
+}
@@ -0,0 +1,172 @@
+package turtle.core;
+
+import turtle.comp.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Simulates a grid ahead as fast as possible, with no input from the player
+ * (other than the moves of a recording being played back), e.g. to fast
+ * forward through a play-back or to run many games in a batch. While doing
+ * so, this looks for cycles in the state of the grid: once the grid comes
+ * back to a state it was in before (including the state of its random
+ * generator), it will keep repeating that cycle until the next input, so
+ * this skips ahead by as many whole cycles as it can at once. The result is
+ * exactly the same as updating every frame, except for the time it takes.
+ *
+ * @author agent
+ */
+public final class FastForward {
+    private static final int MAX_HISTORY = 64;
+
+    private final Grid grid;
+    private final int framesPerSecond;
+    private final LinkedHashMap<ByteBuffer, Long> history;
+    private long period;
+    private long skipped;
+    private boolean broken;
+
+    /**
+     * Constructs a new fast-forward over a grid.
+     *
+     * @param grid            the grid to simulate.
+     * @param framesPerSecond the number of frames between each decrement of
+     *                        the time left, as in the game.
+     * @throws IllegalArgumentException if the frames per second is not
+     *                                  positive.
+     */
+    public FastForward(Grid grid, int framesPerSecond) {
+        Objects.requireNonNull(grid, "Grid must be non-null");
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frames per second must be " +
+                    "positive.");
+        }
+        this.grid = grid;
+        this.framesPerSecond = framesPerSecond;
+        history = new LinkedHashMap<ByteBuffer, Long>() {
+            private static final long serialVersionUID =
+                    -3106394815062137207L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Long>
+                                                        eldest) {
+                return size() > MAX_HISTORY;
+            }
+        };
+        period = 0;
+        skipped = 0;
+    }
+
+    /**
+     * @return the total number of frames skipped so far, without updating
+     * them one by one.
+     */
+    public long getSkippedFrames() {
+        return skipped;
+    }
+
+    /**
+     * Advances the grid from one frame up to another, just as the game would
+     * with no input from the player. This stops early once the game is over,
+     * i.e. once the player has won or died, or the time is up.
+     *
+     * @param frame the next frame to update.
+     * @param until the frame to stop at (exclusive).
+     * @return the next frame to update.
+     */
+    public long advance(long frame, long until) {
+        history.clear();
+        while (frame < until && !isOver()) {
+            //A move played back changes the course of the grid.
+            if (grid.getRecording().nextPlaybackMove(frame) == frame) {
+                history.clear();
+            }
+
+            grid.updateFrame(frame);
+            if ((frame + 1) % framesPerSecond == 0) {
+                grid.decrementTime();
+            }
+            frame = skipCycles(frame + 1, until);
+        }
+        return frame;
+    }
+
+    /**
+     * @return true if the game on the grid is over, false otherwise.
+     */
+    private boolean isOver() {
+        Player p = grid.getPlayer();
+        return p == null || p.isWinner() || p.isDead() ||
+                grid.getTimeLeft() == 0;
+    }
+
+    /**
+     * Records the state of the grid, and skips ahead if this state has been
+     * seen before. States are only compared at frames that are a multiple of
+     * the frame period of the grid (and of one second), so that the absolute
+     * frame number never changes how the grid plays out after a skip.
+     *
+     * @param frame the next frame to update.
+     * @param until the frame to stop at (exclusive).
+     * @return the next frame to update after skipping.
+     */
+    private long skipCycles(long frame, long until) {
+        if (broken) {
+            return frame;
+        }
+
+        long p = Grid.lcm(grid.getFramePeriod(), framesPerSecond);
+        if (p != period) {
+            history.clear();
+            period = p;
+        }
+        if (frame % period != 0 || frame >= until) {
+            return frame;
+        }
+
+        ByteBuffer state;
+        try {
+            state = ByteBuffer.wrap(grid.snapshot(frame));
+        } catch (IOException e) {
+            e.printStackTrace();
+            broken = true;
+            return frame;
+        }
+
+        Long seen = history.get(state);
+        if (seen == null) {
+            history.put(state, frame);
+            return frame;
+        }
+
+        //Stop before the next move played back, and before the time is up.
+        long cycle = frame - seen;
+        long limit = until;
+        long move = grid.getRecording().nextPlaybackMove(frame);
+        if (move != -1) {
+            limit = Math.min(limit, move);
+        }
+        long cycles = (limit - frame) / cycle;
+        int time = grid.getTimeLeft();
+        long seconds = cycle / framesPerSecond;
+        if (time > 0) {
+            cycles = Math.min(cycles, (time - 1) / seconds);
+        }
+        if (cycles <= 0) {
+            return frame;
+        }
+
+        long skip = cycles * cycle;
+        grid.shiftFrames(skip);
+        if (time > 0) {
+            grid.setTimeLeft((int) (time - cycles * seconds));
+        }
+        skipped += skip;
+        history.clear();
+        return frame + skip;
+    }
+}
@@ -1,8 +1,13 @@
 package turtle.core;
 
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.geometry.HPos;
 import javafx.geometry.VPos;
 import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.Pane;
 import turtle.comp.Player;
 
@@ -16,17 +21,50 @@ import java.util.*;
  */
 public class Grid extends Pane implements Serializable {
     public static final int CELL_SIZE = 100;
-    
+    public static final int REGION_SIZE = 8;
+
     private static final long serialVersionUID = 7918941519839716716L;
+    private static final long SNAPSHOT_ORIGIN = 1L << 40;
+    //Cells beyond the view window kept on the stage, so that nothing pops
+    //in while moving into view.
+    private static final int STAGE_MARGIN = 2;
+    private static final Comparator<Component> UPDATE_ORDER =
+            Comparator.comparingInt(comp -> comp.registrySlot);
     private final StatefulRandom rng;
 
     private final int rows;
     private final int cols;
     private final Cell[][] base;
-    private final HashMap<Actor, Location> actorLocs;
+    private final EntityTable entities;
 
+    private transient Pane pnlTerrain;
     private transient Pane pnlBase;
     private transient Pane pnlStage;
+    private transient ComponentRegistry<Cell> cells;
+    private transient TreeMap<DominanceLevel, StageLayer> layers;
+    private transient HashSet<Actor> pendingRemovals;
+    private transient ArrayList<Component> pendingViews;
+    private transient ArrayList<Actor>[] occupants;
+    private transient BakedTerrain bakedTerrain;
+    private transient PassabilityMap passability;
+    private transient boolean[] sharedRows;
+    private transient boolean forked;
+    private transient boolean updating;
+    private transient int activeTop;
+    private transient int activeLeft;
+    private transient int activeBottom;
+    private transient int activeRight;
+    private transient UpdateProfile updateProfile;
+    private transient Visibility visibility;
+    private transient boolean batched;
+    private transient Canvas cellCanvas;
+    private transient int windowTop;
+    private transient int windowLeft;
+    private transient int windowRows;
+    private transient int windowCols;
+    private transient boolean windowSet;
+    private transient boolean cosmeticAnimations;
+    private transient boolean soundsEnabled;
 
     private Player player;
     private int foodLeft;
@@ -34,6 +72,8 @@ public class Grid extends Pane implements Serializable {
     private Direction lastMove;
     private final Recording recording;
     private boolean playing;
+    private EngineProfile profile;
+    private TerrainAutomaton terrain;
 
 
     /**
@@ -52,13 +92,39 @@ public class Grid extends Pane implements Serializable {
         timeLeft = -1;
 
         base = new Cell[rows][cols];
-        actorLocs = new HashMap<>();
+        entities = new EntityTable();
 
         lastMove = null;
+        profile = EngineProfile.STRICT;
 
-        pnlBase = new ComponentPane();
-        pnlStage = new ComponentPane();
-        getChildren().addAll(pnlBase, pnlStage);
+        initStage();
+    }
+
+    /**
+     * Creates a fork of a grid, copying only the primitive state of the
+     * grid. The cells and actors are filled in by {@link #fork()}.
+     *
+     * @param source the grid to fork from.
+     */
+    private Grid(Grid source) {
+        rng = source.rng.clone();
+        recording = new Recording();
+
+        rows = source.rows;
+        cols = source.cols;
+        foodLeft = source.foodLeft;
+        timeLeft = source.timeLeft;
+        lastMove = source.lastMove;
+        playing = source.playing;
+        profile = source.profile;
+
+        base = new Cell[rows][];
+        entities = source.entities.copy();
+        terrain = source.terrain == null ? null : source.terrain.copy();
+
+        initStage();
+        passability = new PassabilityMap(base, source.passability);
+        forked = true;
     }
 
     /**
@@ -80,6 +146,85 @@ public class Grid extends Pane implements Serializable {
         }
     }
 
+    /**
+     * Forks this grid into a separate simulation, e.g. for lookahead
+     * searches. Unlike {@link #deepCopy()}, this shares all the static
+     * cells with this grid, and rows of cells that only contain static
+     * cells are shared until either grid changes a cell in them. Only the
+     * actors and non-static cells are copied. The random number generator
+     * is cloned, so the fork will play out exactly as this grid would, and
+     * the fork starts a new recording of its own.
+     * <p>
+     * A fork is only meant for simulation: it does not display the shared
+     * cells (which stay with this grid) and it cannot be serialized.
+     *
+     * @return a new forked grid.
+     * @throws IOException if a component cannot be copied via serialization
+     * @see Cell#isStatic()
+     */
+    public Grid fork() throws IOException {
+        Grid fork = new Grid(this);
+        for (int r = 0; r < rows; r++) {
+            boolean shareable = true;
+            for (Cell cell : base[r]) {
+                if (cell != null && !cell.isStatic()) {
+                    shareable = false;
+                    break;
+                }
+            }
+
+            if (shareable) {
+                fork.base[r] = base[r];
+                fork.sharedRows[r] = true;
+                sharedRows[r] = true;
+            } else {
+                fork.base[r] = base[r].clone();
+            }
+        }
+
+        List<Cell> forkCells = new ArrayList<>();
+        for (Cell cell : cells)
+            if (!cell.isStatic()) {
+                forkCells.add(cell);
+            }
+        List<Actor> forkActors = new ArrayList<>();
+        for (StageLayer layer : layers.values())
+            for (Actor a : layer.actors)
+                forkActors.add(a);
+
+        Object[] copied;
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ForkOutputStream(baos);
+            oos.writeObject(new Object[]{forkCells.toArray(new Cell[0]),
+                    forkActors.toArray(new Actor[0]), player});
+            oos.close();
+            ObjectInputStream ois = new ForkInputStream(new
+                    ByteArrayInputStream(baos.toByteArray()), fork);
+            copied = (Object[]) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+
+        for (Cell cell : (Cell[]) copied[0]) {
+            Location loc = cell.getHeadLocation();
+            fork.base[loc.getRow()][loc.getColumn()] = cell;
+            fork.entities.replace(cell);
+            fork.cells.add(cell);
+            fork.pnlBase.getChildren().add(cell);
+        }
+        for (Actor actor : (Actor[]) copied[1]) {
+            fork.entities.replace(actor);
+            fork.occupy(actor);
+            fork.layerFor(actor.dominanceLevelFor(null)).addActor(actor);
+        }
+        fork.player = (Player) copied[2];
+        if (fork.terrain != null) {
+            fork.terrain.attach(fork);
+        }
+        return fork;
+    }
+
     /**
      * Gets cell at location.
      *
@@ -101,6 +246,17 @@ public class Grid extends Pane implements Serializable {
         return base[loc.getRow()][loc.getColumn()];
     }
 
+    /**
+     * Gets cell at location.
+     *
+     * @param pos the packed location of the cell
+     * @return the cell at the row/col position.
+     * @see Location#pack(int, int)
+     */
+    public Cell getCellAt(long pos) {
+        return base[Location.rowOf(pos)][Location.columnOf(pos)];
+    }
+
     /**
      * @return the number of columns
      */
@@ -108,6 +264,211 @@ public class Grid extends Pane implements Serializable {
         return cols;
     }
 
+    /**
+     * @return the engine profile that this grid is updated with.
+     */
+    public EngineProfile getEngineProfile() {
+        return profile;
+    }
+
+    /**
+     * Sets the engine profile that this grid is updated with. Any profile
+     * other than {@link EngineProfile#STRICT} plays out differently than the
+     * original engine, so this should be set before the grid starts
+     * playing, so that it is saved in the recording.
+     *
+     * @param profile the new engine profile.
+     */
+    public void setEngineProfile(EngineProfile profile) {
+        this.profile = Objects.requireNonNull(profile, "Profile must be " +
+                "non-null.");
+    }
+
+    /**
+     * @return the radius of sight of the fog of war, or 0 if there is no fog
+     * of war.
+     */
+    public int getVisionRadius() {
+        return visibility == null ? 0 : visibility.getRadius();
+    }
+
+    /**
+     * Sets the fog of war of this grid, so that only the locations within
+     * the player's line of sight are shown. Walls and closed doors (or any
+     * other opaque component) block sight. The fog of war only changes what
+     * is shown, never how the grid plays out.
+     *
+     * @param radius the radius of sight, in cells, or 0 to lift the fog of
+     *               war.
+     * @throws IllegalArgumentException if the radius is negative.
+     */
+    public void setVisionRadius(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must be non-negative.");
+        }
+        if (radius == getVisionRadius()) {
+            return;
+        }
+
+        Visibility old = visibility;
+        visibility = null;
+        if (old != null) {
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++)
+                    if (!old.isVisible(r, c)) {
+                        cull(r, c);
+                    }
+        }
+        if (radius > 0) {
+            visibility = new Visibility(this, radius);
+            updateVisibility();
+        }
+        requestLayout();
+    }
+
+    /**
+     * Checks whether if a location is shown through the fog of war (if any),
+     * i.e. whether if it is within the player's line of sight.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     * @return true if shown, false if hidden by the fog of war.
+     */
+    public boolean isInSight(int row, int col) {
+        return visibility == null || visibility.isVisible(row, col);
+    }
+
+    /**
+     * Checks whether if a location is shown through the fog of war (if any),
+     * i.e. whether if it is within the player's line of sight.
+     *
+     * @param pos the packed location.
+     * @return true if shown, false if hidden by the fog of war (or invalid).
+     */
+    public boolean isInSight(long pos) {
+        return visibility == null || (isValidLocation(pos) && visibility
+                .isVisible(Location.rowOf(pos), Location.columnOf(pos)));
+    }
+
+    /**
+     * @return true if this grid renders in batches, false if every
+     * component has a node of its own.
+     */
+    public boolean isBatchRendering() {
+        return batched;
+    }
+
+    /**
+     * Sets whether if this grid renders in batches. When batched, the cells
+     * are all drawn onto one canvas, and the actors of each stage layer onto
+     * a canvas of that layer, straight from the tile set, after each frame.
+     * Only the components that cannot be drawn keep a node on the stage.
+     * This only changes how the grid is shown, never how it plays out.
+     *
+     * @param batched true to render in batches, false to give every
+     *                component a node of its own.
+     * @throws IllegalStateException if the grid is updating a frame.
+     * @see Component#isDrawable()
+     */
+    public void setBatchRendering(boolean batched) {
+        if (updating) {
+            throw new IllegalStateException("Cannot change rendering while " +
+                    "updating a frame.");
+        }
+        if (this.batched == batched) {
+            return;
+        }
+        this.batched = batched;
+        if (batched && cellCanvas == null) {
+            cellCanvas = new Canvas();
+            cellCanvas.setManaged(false);
+            cellCanvas.setMouseTransparent(true);
+        }
+        restage();
+    }
+
+    /**
+     * Sets the window of locations that is actually being shown, e.g. the
+     * portion of this grid that fits on the screen. Only the components
+     * within this window (give or take a few cells) have their nodes on the
+     * stage, only the components within this window (give or take a cell)
+     * are drawn onto canvases, and the canvases only cover this window. So
+     * rendering costs depend on the size of the window rather than the size
+     * of the grid. Nodes are taken off or put on the stage only as the
+     * window moves over them, and the canvases of the baked terrain are
+     * reused. By default, the window is the part of this grid that lies
+     * within its scene, as of when this grid was last laid out.
+     *
+     * @param top    the first row of the window.
+     * @param left   the first column of the window.
+     * @param height the number of rows of the window.
+     * @param width  the number of columns of the window.
+     */
+    public void setViewWindow(int top, int left, int height, int width) {
+        windowSet = true;
+        moveWindow(top, left, height, width);
+    }
+
+    /**
+     * Moves the view window, clipped to this grid, and restages whatever
+     * left or came into it.
+     *
+     * @param top    the first row of the window.
+     * @param left   the first column of the window.
+     * @param height the number of rows of the window.
+     * @param width  the number of columns of the window.
+     */
+    private void moveWindow(int top, int left, int height, int width) {
+        int bottom = Math.min(rows, top + height);
+        int right = Math.min(cols, left + width);
+        top = Math.max(0, top);
+        left = Math.max(0, left);
+        height = Math.max(0, bottom - top);
+        width = Math.max(0, right - left);
+        if (top == windowTop && left == windowLeft && height == windowRows &&
+                width == windowCols) {
+            return;
+        }
+
+        int oldTop = windowTop;
+        int oldLeft = windowLeft;
+        int oldBottom = windowTop + windowRows;
+        int oldRight = windowLeft + windowCols;
+        windowTop = top;
+        windowLeft = left;
+        windowRows = height;
+        windowCols = width;
+
+        //Only what left or came into the window needs to change.
+        restageArea(oldTop, oldLeft, oldBottom, oldRight);
+        restageArea(top, left, top + height, left + width);
+        requestRedraw();
+    }
+
+    /**
+     * @return the terrain automaton that spreads the terrain of this grid,
+     * or null if the terrain never spreads.
+     */
+    public TerrainAutomaton getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * Sets the terrain automaton that spreads the terrain of this grid. Like
+     * the engine profile, this changes how the grid plays out, so this
+     * should be set before the grid starts playing.
+     *
+     * @param terrain the new terrain automaton, or null to never spread.
+     * @throws IllegalArgumentException if the automaton already belongs to
+     *                                  another grid.
+     */
+    public void setTerrain(TerrainAutomaton terrain) {
+        if (terrain != null) {
+            terrain.attach(this);
+        }
+        this.terrain = terrain;
+    }
+
     /**
      * Gets the player object of this level.
      *
@@ -133,19 +494,42 @@ public class Grid extends Pane implements Serializable {
      * @return a sorted list (by reverse DominanceLevel).
      */
     public List<Actor> getResidents(Actor visitor, int row, int col) {
-        Location search = new Location(row, col);
-        List<Actor> residents = new ArrayList<>();
-        for (Node n : pnlStage.getChildren()) {
-            if (n instanceof Actor) {
-                Actor a = (Actor) n;
-                if (a.getHeadLocation().equals(search)) {
-                    residents.add(a);
-                }
-            }
+        return getResidents(visitor, Location.pack(row, col));
+    }
+
+    /**
+     * Gets a list of all residents within a particular location
+     *
+     * @param visitor actor to get relative dominance levels to
+     * @param pos     packed location to search
+     * @return a sorted list (by reverse DominanceLevel).
+     * @see Location#pack(int, int)
+     */
+    public List<Actor> getResidents(Actor visitor, long pos) {
+        if (!isValidLocation(pos)) {
+            return new ArrayList<>();
+        }
+
+        List<Actor> occupied = occupants[indexOf(pos)];
+        if (occupied == null) {
+            return new ArrayList<>();
         }
 
-        residents.sort((a1, a2) -> a2.dominanceLevelFor(visitor).compareTo(
-                a1.dominanceLevelFor(visitor)));
+        //Ties are broken by stage order, i.e. by layer, then by placement.
+        List<Actor> residents = new ArrayList<>(occupied);
+        residents.sort((a1, a2) -> {
+            int cmp = a2.dominanceLevelFor(visitor).compareTo(
+                    a1.dominanceLevelFor(visitor));
+            if (cmp == 0) {
+                StageLayer l1 = layerOf(a1);
+                StageLayer l2 = layerOf(a2);
+                cmp = l2.level.compareTo(l1.level);
+            }
+            if (cmp == 0) {
+                cmp = Integer.compare(a1.registrySlot, a2.registrySlot);
+            }
+            return cmp;
+        });
         return residents;
     }
 
@@ -190,6 +574,45 @@ public class Grid extends Pane implements Serializable {
         this.playing = playing;
     }
 
+    /**
+     * @return true if the looping animations of the components of this grid
+     * are shown, false if they are frozen.
+     */
+    public boolean hasCosmeticAnimations() {
+        return cosmeticAnimations;
+    }
+
+    /**
+     * Sets whether if the looping animations of the components of this grid
+     * are shown. Animations that run only once are always shown, since they
+     * finish in a particular image. This never changes how a game plays out,
+     * and it is not carried over to copies or forks of this grid.
+     *
+     * @param enabled true to show looping animations, false to freeze them
+     *                at their current image.
+     */
+    public void setCosmeticAnimations(boolean enabled) {
+        cosmeticAnimations = enabled;
+    }
+
+    /**
+     * @return true if the components of this grid play sounds, false if
+     * their sounds are dropped.
+     */
+    public boolean isSoundsEnabled() {
+        return soundsEnabled;
+    }
+
+    /**
+     * Sets whether if the components of this grid play any sounds. This is
+     * not carried over to copies or forks of this grid.
+     *
+     * @param enabled true to play sounds, false to drop them.
+     */
+    public void setSoundsEnabled(boolean enabled) {
+        soundsEnabled = enabled;
+    }
+
     /**
      * Setter method for remaining time
      *
@@ -222,6 +645,19 @@ public class Grid extends Pane implements Serializable {
         return row >= 0 && col >= 0 && row < rows && col < cols;
     }
 
+    /**
+     * Determines whether if a packed location is a valid location, i.e.
+     * is a location within this grid's bounds.
+     *
+     * @param pos the packed location.
+     * @return true if valid, false if invalid.
+     * @see Location#pack(int, int)
+     */
+    public boolean isValidLocation(long pos) {
+        return Location.isValid(pos) && Location.rowOf(pos) < rows &&
+                Location.columnOf(pos) < cols;
+    }
+
     /**
      * Increment the amount of food by one unit, and thus the amount of
      * food requirement is decremented.
@@ -273,6 +709,53 @@ public class Grid extends Pane implements Serializable {
         return rng;
     }
 
+    /**
+     * Sets the profile that collects the time spent updating each class of
+     * component on every frame. Components are still updated in their
+     * usual order, and the runs of components of the same class in that
+     * order are timed as a whole, leaving out whatever the grid does between
+     * their updates.
+     *
+     * @param profile the profile to collect into, or null to stop profiling.
+     */
+    public void setUpdateProfile(UpdateProfile profile) {
+        updateProfile = profile;
+    }
+
+    /**
+     * Determines whether if the region containing a location is currently
+     * active, i.e. its components are updated on every frame. Regions are
+     * square blocks of {@link #REGION_SIZE} cells. Under a strict profile,
+     * every region is always active.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     * @return true if the region is active, false if it is only updated at
+     * a reduced rate.
+     * @see EngineProfile#levelOfDetail(int, int)
+     */
+    public boolean isRegionActive(int row, int col) {
+        if (profile.isStrict()) {
+            return true;
+        }
+        int regionRow = row / REGION_SIZE;
+        int regionCol = col / REGION_SIZE;
+        return regionRow >= activeTop && regionRow <= activeBottom &&
+                regionCol >= activeLeft && regionCol <= activeRight;
+    }
+
+    /**
+     * Finds a component placed in this grid by its handle.
+     *
+     * @param handle the handle of the component.
+     * @return the component, or null if no component in this grid has that
+     * handle (e.g. it has since been removed).
+     * @see Component#getHandle()
+     */
+    public Component lookup(long handle) {
+        return entities.get(handle);
+    }
+
     /**
      * @return the number of rows
      */
@@ -289,7 +772,62 @@ public class Grid extends Pane implements Serializable {
      * @return true if and only if the actor moved
      */
     public boolean moveActor(Actor comp, int row, int col) {
-        return checkVisit(comp, row, col, true);
+        return checkVisit(comp, Location.pack(row, col), true);
+    }
+
+    /**
+     * Moves the actor to a new location.
+     *
+     * @param comp actor to move
+     * @param pos  the new packed location to move to.
+     * @return true if and only if the actor moved
+     * @see Location#pack(int, int)
+     */
+    public boolean moveActor(Actor comp, long pos) {
+        return checkVisit(comp, pos, true);
+    }
+
+    /**
+     * Moves an actor in the first of several directions that it can move
+     * in. The actor's passability is looked up only once for all the
+     * directions, and each direction is checked the same way as with
+     * {@link #checkMove(Actor, long)}, and the move is then made without
+     * checking it again. If the move itself fails (e.g. a resident refuses
+     * the actor), the remaining directions are tried in the same way.
+     * <p>
+     * Like {@link #checkMove(Actor, long)}, checking a direction calls
+     * {@link Actor#checkInteract(Actor)} on the residents there, which is not
+     * always free of side effects, e.g. a {@link turtle.comp.Door} unlocks
+     * (and dies) as soon as a player holding its key is checked against it,
+     * even if the player then moves elsewhere.
+     *
+     * @param comp    the actor to move.
+     * @param choices the directions to try, in order.
+     * @return the direction moved in, or null if no move was made.
+     * @see Actor#traverseFirst(Direction...)
+     */
+    Direction moveFirst(Actor comp, Direction[] choices) {
+        PassabilityMap.Category cat = passability.categoryOf(comp);
+        for (Direction dir : choices) {
+            //A failed move may have changed the actor, so check it again.
+            if (comp.isDying() || comp.isMoving() || comp.getParentGrid() !=
+                    this) {
+                return null;
+            }
+
+            long pos = comp.getHeadPosition();
+            if (!isValidLocation(pos)) {
+                return null;
+            }
+
+            int row = Location.rowOf(pos) + dir.getRowIncrement();
+            int col = Location.columnOf(pos) + dir.getColumnIncrement();
+            if (isValidLocation(row, col) && canVisit(comp, cat, row, col) &&
+                    visit(comp, row, col)) {
+                return dir;
+            }
+        }
+        return null;
     }
 
     /**
@@ -318,7 +856,20 @@ public class Grid extends Pane implements Serializable {
      * @return true if and only if actor can move
      */
     public boolean checkMove(Actor comp, int row, int col) {
-        return checkVisit(comp, row, col, false);
+        return checkVisit(comp, Location.pack(row, col), false);
+    }
+
+    /**
+     * Checks whether if actor can move to new location, but
+     * doesn't actually move it there.
+     *
+     * @param comp actor to move
+     * @param pos  the new packed location to move to.
+     * @return true if and only if actor can move
+     * @see Location#pack(int, int)
+     */
+    public boolean checkMove(Actor comp, long pos) {
+        return checkVisit(comp, pos, false);
     }
 
     /**
@@ -331,12 +882,15 @@ public class Grid extends Pane implements Serializable {
         if (comp.getParentGrid() != null) {
             return false;
         }
-        if (actorLocs.containsKey(comp)) {
+        if (entities.contains(comp)) {
             return false;
         }
+        if (pendingRemovals.remove(comp)) {
+            detachActor(comp);
+        }
 
         Location loc = comp.getHeadLocation();
-        boolean success = checkVisit(comp, loc.getRow(), loc.getColumn(), true);
+        boolean success = checkVisit(comp, loc.pack(), true);
         if (success) {
             if (comp instanceof Player) {
                 player = (Player) comp;
@@ -344,23 +898,11 @@ public class Grid extends Pane implements Serializable {
 
             comp.setParentGrid(this);
             comp.getTrailingLocation().setLocation(loc);
-            comp.setTranslateX(loc.getColumn() * CELL_SIZE);
-            comp.setTranslateY(loc.getRow() * CELL_SIZE);
-
-            List<Node> children = pnlStage.getChildren();
-            DominanceLevel test = comp.dominanceLevelFor(null);
-
-            int insertInd;
-            for (insertInd = 0; insertInd < children.size(); insertInd++) {
-                if (children.get(insertInd) instanceof Actor) {
-                    Actor child = (Actor) children.get(insertInd);
-                    if (child.dominanceLevelFor(null).compareTo(test) < 0) {
-                        break;
-                    }
-                }
-            }
-            children.add(insertInd, comp);
-            actorLocs.put(comp, loc);
+            comp.snapToHead();
+
+            layerFor(comp.dominanceLevelFor(null)).addActor(comp);
+            entities.add(comp);
+            occupy(comp);
         }
         return success;
     }
@@ -375,7 +917,7 @@ public class Grid extends Pane implements Serializable {
         if (comp.getParentGrid() != null) {
             return false;
         }
-        if (pnlBase.getChildren().contains(comp)) {
+        if (cells.contains(comp)) {
             return false;
         }
 
@@ -386,36 +928,115 @@ public class Grid extends Pane implements Serializable {
 
         comp.setParentGrid(this);
         comp.getTrailingLocation().setLocation(loc);
-        comp.setTranslateX(loc.getColumn() * CELL_SIZE);
-        comp.setTranslateY(loc.getRow() * CELL_SIZE);
+        comp.snapToHead();
 
+        ownRow(loc.getRow());
         base[loc.getRow()][loc.getColumn()] = comp;
-        pnlBase.getChildren().add(comp);
+        cells.add(comp);
+        entities.add(comp);
+        if (!isDrawnOnCanvas(comp) && isStaged(comp.getHeadPosition())) {
+            pnlBase.getChildren().add(comp);
+        }
+        cellChanged(loc.getRow(), loc.getColumn());
+        return true;
+    }
+
+    /**
+     * Places a shared flyweight cell at a location. A flyweight is a single
+     * instance of a static cell that fills any number of locations (so its
+     * position is implied by where it is placed), and it is never updated.
+     * It is displayed with a plain image of its default image frame, baked
+     * into the terrain along with the other static cells around it.
+     *
+     * @param comp the flyweight cell to put.
+     * @param row  the row to place it at.
+     * @param col  the column to place it at.
+     * @return true if it is placed, false otherwise.
+     * @throws IllegalArgumentException if the cell is not static.
+     * @see ComponentInfo#getFlyweight()
+     */
+    public boolean placeCell(Cell comp, int row, int col) {
+        if (!comp.isStatic()) {
+            throw new IllegalArgumentException("Only static cells can be " +
+                    "shared.");
+        }
+        if (comp.getParentGrid() != null) {
+            return false;
+        }
+        if (!isValidLocation(row, col) || base[row][col] != null) {
+            return false;
+        }
+
+        ownRow(row);
+        base[row][col] = comp;
+        cellChanged(row, col);
         return true;
     }
 
     /**
-     * Removes an actor from the grid.
+     * Removes an actor from the grid. If this is called while the grid is
+     * updating a frame, the actor is removed from the grid immediately, but
+     * its node is only taken off the stage at the end of that frame.
      *
      * @param comp the actor to remove.
      * @return true if and only if this call resulted in a change of the grid.
+     * @see #flushRemovals()
      */
     public boolean removeActor(Actor comp) {
-        if (actorLocs.containsKey(comp)) {
+        if (entities.contains(comp)) {
             if (comp == player) {
                 player = null;
             }
 
             comp.setParentGrid(null);
-            pnlStage.getChildren().remove(comp);
-            actorLocs.remove(comp);
+            entities.remove(comp);
+            vacate(comp, comp.getHeadPosition());
+            if (visibility != null) {
+                comp.setVisible(true);
+            }
+            StageLayer layer = layerOf(comp);
+            layer.actors.remove(comp);
+            if (updating) {
+                pendingRemovals.add(comp);
+            } else {
+                detachActor(comp);
+                if (isDrawnOnCanvas(comp)) {
+                    layer.requestLayout();
+                }
+            }
             return true;
         }
         return false;
     }
 
     /**
-     * Removes an cell from the grid.
+     * Removes whichever cell is at a location from the grid, including
+     * flyweight cells.
+     *
+     * @param row the row of the cell to remove.
+     * @param col the column of the cell to remove.
+     * @return true if and only if this call resulted in a change of the grid.
+     */
+    public boolean removeCell(int row, int col) {
+        if (!isValidLocation(row, col) || base[row][col] == null) {
+            return false;
+        }
+
+        Cell comp = base[row][col];
+        if (comp.getParentGrid() == this) {
+            return removeCell(comp);
+        }
+
+        ownRow(row);
+        base[row][col] = null;
+        cellChanged(row, col);
+        return true;
+    }
+
+    /**
+     * Removes an cell from the grid. Flyweight cells have no location of
+     * their own, so they can only be removed with
+     * {@link #removeCell(int, int)}.
      *
      * @param comp the cell to remove.
      * @return true if and only if this call resulted in a change of the grid.
@@ -428,59 +1049,829 @@ public class Grid extends Pane implements Serializable {
         }
 
         if (getCellAt(loc) == comp) {
-            comp.setParentGrid(null);
-            pnlBase.getChildren().remove(comp);
+            //Shared cells still belong to the grid this was forked from.
+            if (comp.getParentGrid() == this) {
+                comp.setParentGrid(null);
+                cells.remove(comp);
+                pnlBase.getChildren().remove(comp);
+            }
+            entities.remove(comp);
+            ownRow(loc.getRow());
             base[loc.getRow()][loc.getColumn()] = null;
+            cellChanged(loc.getRow(), loc.getColumn());
             return true;
         }
         return false;
     }
 
     /**
-     * Updates frame of all the grid components.
+     * Shifts every component of this grid by an offset, e.g. to stream a
+     * larger world through this grid as the player travels. Components that
+     * would be shifted off the grid are removed first. Everything else keeps
+     * its handle and its place in the update order, so the grid plays out
+     * just as it would have, only that many cells away.
      *
-     * @param frame the current frame index.
+     * @param dRows the number of rows to shift by.
+     * @param dCols the number of columns to shift by.
+     * @throws IllegalStateException if the grid is updating a frame.
+     * @see Component#shiftLocation(int, int)
      */
-    public void updateFrame(long frame) {
-        if (!recording.isStarted()) {
-            recording.startRecording(this);
+    public void shiftWorld(int dRows, int dCols) {
+        if (updating) {
+            throw new IllegalStateException("Cannot shift while updating a " +
+                    "frame.");
+        }
+        if (dRows == 0 && dCols == 0) {
+            return;
         }
-        recording.updateFrame(frame);
-        lastMove = null;
-
-        //Avoid concurrency issues.
-        List<Node> base = new ArrayList<>(pnlBase.getChildren());
-        List<Node> stage = new ArrayList<>(pnlStage.getChildren());
 
-        for (Node n : base) {
-            if (n instanceof Cell) {
-                ((Cell) n).updateFrame(frame);
-            }
+        //Lift the fog of war while things move, so nothing stays hidden.
+        int radius = getVisionRadius();
+        setVisionRadius(0);
+
+        //Compact the registries once, rather than after every removal.
+        cells.beginPass();
+        for (StageLayer layer : layers.values())
+            layer.actors.beginPass();
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                if (!isValidLocation(r + dRows, c + dCols)) {
+                    for (Actor a : getResidents(null, r, c))
+                        removeActor(a);
+                    removeCell(r, c);
+                }
+        cells.endPass();
+        for (StageLayer layer : layers.values())
+            layer.actors.endPass();
+
+        Cell[][] oldBase = new Cell[rows][];
+        for (int r = 0; r < rows; r++) {
+            ownRow(r);
+            oldBase[r] = base[r].clone();
+            Arrays.fill(base[r], null);
         }
+        Arrays.fill(occupants, null);
 
-        for (Node n : stage) {
-            if (n instanceof Actor) {
-                Actor a = (Actor) n;
-                a.updateFrame(frame);
-                if (a.isDead()) {
-                    removeActor(a);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++) {
+                Cell cell = oldBase[r][c];
+                if (cell == null) {
+                    continue;
+                }
+
+                base[r + dRows][c + dCols] = cell;
+                if (cell.getParentGrid() == this) {
+                    cell.shiftLocation(dRows, dCols);
                 }
             }
+        for (StageLayer layer : layers.values())
+            for (Actor a : layer.actors) {
+                a.shiftLocation(dRows, dCols);
+                occupy(a);
+            }
+
+        passability = new PassabilityMap(base, cols);
+        if (terrain != null) {
+            terrain.attach(this);
         }
+
+        //What was on the stage before is now shifted along with it.
+        int bottom = windowTop + windowRows;
+        int right = windowLeft + windowCols;
+        restageArea(windowTop, windowLeft, bottom, right);
+        restageArea(windowTop + dRows, windowLeft + dCols, bottom + dRows,
+                right + dCols);
+        bakedTerrain.invalidateAll();
+        setVisionRadius(radius);
+        drawCells();
+        for (StageLayer layer : layers.values())
+            layer.drawSprites();
     }
 
     /**
-     * Layouts all the children of this Grid.
+     * Takes a snapshot of this grid that does not depend on the absolute
+     * frame number or on the exact time left. Two snapshots taken at frames
+     * a whole number of frame periods apart are equal only if this grid
+     * plays out the same from both frames (given the same input), just
+     * shifted in time.
+     *
+     * @param frame the next frame to be updated.
+     * @return the serialized snapshot.
+     * @throws IOException if something cannot be serialized.
+     * @see #getFramePeriod()
      */
-    @Override
+    byte[] snapshot(long frame) throws IOException {
+        //Components only count frames relative to one another, so shift all
+        //frame numbers to a fixed origin. The origin is large enough that no
+        //shifted frame number collides with the -1 used for "none".
+        long delta = SNAPSHOT_ORIGIN - frame;
+        int time = timeLeft;
+        shiftFrames(delta);
+        if (timeLeft > 0) {
+            timeLeft = 1;
+        }
+
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(this);
+            oos.close();
+            return baos.toByteArray();
+        } finally {
+            timeLeft = time;
+            shiftFrames(-delta);
+        }
+    }
+
+    /**
+     * Shifts all the frame numbers kept by the components of this grid (and
+     * by a recording in progress).
+     *
+     * @param delta the number of frames to shift by.
+     * @see Component#shiftFrames(long)
+     */
+    void shiftFrames(long delta) {
+        recording.shiftFrames(delta);
+        for (int i = 0; i < entities.capacity(); i++) {
+            Component comp = entities.at(i);
+            if (comp != null) {
+                comp.shiftFrames(delta);
+            }
+        }
+    }
+
+    /**
+     * Obtains the period with which this grid depends on the absolute frame
+     * number, i.e. the least common multiple of the frame periods of all its
+     * components (and of the interval of its engine profile).
+     *
+     * @return the period in frames.
+     * @see Component#getFramePeriod()
+     */
+    long getFramePeriod() {
+        long period = profile.isStrict() ? 1 : profile.getInterval();
+        if (terrain != null) {
+            period = lcm(period, terrain.getFramePeriod());
+        }
+        for (int i = 0; i < entities.capacity(); i++) {
+            Component comp = entities.at(i);
+            if (comp != null) {
+                period = lcm(period, comp.getFramePeriod());
+            }
+        }
+        return period;
+    }
+
+    /**
+     * Computes the least common multiple of two positive numbers.
+     *
+     * @param a the first number.
+     * @param b the second number.
+     * @return the least common multiple.
+     */
+    static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+
+    /**
+     * Updates frame of all the grid components.
+     *
+     * @param frame the current frame index.
+     */
+    public void updateFrame(long frame) {
+        if (!recording.isStarted()) {
+            recording.startRecording(this);
+        }
+        recording.updateFrame(frame);
+        lastMove = null;
+        if (terrain != null) {
+            terrain.step(frame);
+        }
+
+        //Components added or removed within this frame do not disturb the
+        //passes, so only the components present now are updated.
+        StageLayer[] stage = layers.values().toArray(new StageLayer[0]);
+        cells.beginPass();
+        for (StageLayer layer : stage)
+            layer.actors.beginPass();
+
+        //Under a level-of-detail profile, components in inactive regions are
+        //only updated once every interval.
+        boolean everything = profile.isStrict() ||
+                frame % profile.getInterval() == 0;
+        if (!profile.isStrict()) {
+            findActiveRegions();
+        }
+
+        updating = true;
+        try {
+            for (Cell c : cells.pass())
+                if (everything || isActive(c)) {
+                    if (updateProfile != null) {
+                        updateProfile.enter(c);
+                    }
+                    c.updateFrame(frame);
+                } else if (updateProfile != null) {
+                    updateProfile.pause();
+                }
+
+            for (StageLayer layer : stage) {
+                for (Actor a : layer.actors.pass()) {
+                    if (everything || isActive(a)) {
+                        if (updateProfile != null) {
+                            updateProfile.enter(a);
+                        }
+                        a.updateFrame(frame);
+                    } else if (updateProfile != null) {
+                        updateProfile.pause();
+                    }
+                    if (a.isDead()) {
+                        if (updateProfile != null) {
+                            updateProfile.pause();
+                        }
+                        removeActor(a);
+                    }
+                }
+            }
+        } finally {
+            if (updateProfile != null) {
+                updateProfile.endFrame();
+            }
+            updating = false;
+            cells.endPass();
+            for (StageLayer layer : stage)
+                layer.actors.endPass();
+            flushRemovals();
+            flushViews();
+            updateVisibility();
+            drawCells();
+            for (StageLayer layer : layers.values())
+                layer.drawSprites();
+        }
+    }
+
+    /**
+     * Finds the regions within the radius of the engine profile around the
+     * player. If there is no player, every region is active.
+     */
+    private void findActiveRegions() {
+        long pos = player == null ? Location.INVALID : player.getHeadPosition();
+        if (!Location.isValid(pos)) {
+            activeTop = activeLeft = 0;
+            activeBottom = activeRight = Integer.MAX_VALUE;
+            return;
+        }
+
+        int radius = profile.getRadius();
+        int row = Location.rowOf(pos);
+        int col = Location.columnOf(pos);
+        activeTop = Math.max(0, row - radius) / REGION_SIZE;
+        activeLeft = Math.max(0, col - radius) / REGION_SIZE;
+        activeBottom = (row + radius) / REGION_SIZE;
+        activeRight = (col + radius) / REGION_SIZE;
+    }
+
+    /**
+     * Determines whether if a component lies within an active region. A
+     * component that has no location is always active.
+     *
+     * @param comp the component to check.
+     * @return true if it is active, false otherwise.
+     */
+    private boolean isActive(Component comp) {
+        long pos = comp.getHeadPosition();
+        return !Location.isValid(pos) || isRegionActive(Location.rowOf(pos),
+                Location.columnOf(pos));
+    }
+
+    /**
+     * Layouts all the children of this Grid.
+     */
+    @Override
     protected void layoutChildren() {
         double width = CELL_SIZE * cols;
         double height = CELL_SIZE * rows;
 
+        layoutInArea(pnlTerrain, 0, 0, width, height, 0, HPos.CENTER,
+                VPos.CENTER);
         layoutInArea(pnlBase, 0, 0, width, height, 0, HPos.CENTER,
                 VPos.CENTER);
         layoutInArea(pnlStage, 0, 0, width, height, 0, HPos.CENTER,
                 VPos.CENTER);
+        fitWindowToScene();
+        drawCells();
+    }
+
+    /**
+     * Fits the view window over the part of this grid that lies within its
+     * scene, unless the window was set explicitly. So the canvases of a grid
+     * that is shown some other way still only cover what could be seen,
+     * rather than the whole grid.
+     */
+    private void fitWindowToScene() {
+        Scene scene = getScene();
+        if (windowSet || scene == null || scene.getWidth() <= 0 || scene
+                .getHeight() <= 0) {
+            return;
+        }
+
+        Bounds bounds = sceneToLocal(new BoundingBox(0, 0, scene.getWidth(),
+                scene.getHeight()));
+        int top = (int) Math.floor(bounds.getMinY() / CELL_SIZE);
+        int left = (int) Math.floor(bounds.getMinX() / CELL_SIZE);
+        int bottom = (int) Math.ceil(bounds.getMaxY() / CELL_SIZE);
+        int right = (int) Math.ceil(bounds.getMaxX() / CELL_SIZE);
+        moveWindow(top, left, bottom - top, right - left);
+    }
+
+    /**
+     * Initializes all the transient state and stage panes of this grid.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void initStage() {
+        pendingRemovals = new HashSet<>();
+        cosmeticAnimations = true;
+        soundsEnabled = true;
+        windowRows = rows;
+        windowCols = cols;
+        pendingViews = new ArrayList<>();
+        occupants = new ArrayList[rows * cols];
+        passability = new PassabilityMap(base, cols);
+        sharedRows = new boolean[rows];
+        pnlTerrain = new Pane();
+        bakedTerrain = new BakedTerrain(this, pnlTerrain);
+        pnlBase = new ComponentPane();
+        pnlStage = new LayeredPane();
+        cells = new ComponentRegistry<>();
+        layers = new TreeMap<>(Comparator.reverseOrder());
+        getChildren().addAll(pnlTerrain, pnlBase, pnlStage);
+    }
+
+    /**
+     * Checks whether if a location is close enough to the view window for
+     * its components to have nodes on the stage.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     * @return true if on the stage, false otherwise.
+     * @see #setViewWindow(int, int, int, int)
+     */
+    private boolean isStaged(int row, int col) {
+        return row >= windowTop - STAGE_MARGIN && row < windowTop +
+                windowRows + STAGE_MARGIN && col >= windowLeft -
+                STAGE_MARGIN && col < windowLeft + windowCols + STAGE_MARGIN;
+    }
+
+    /**
+     * Checks whether if a location is close enough to the view window for
+     * its components to have nodes on the stage.
+     *
+     * @param pos the packed location.
+     * @return true if on the stage, false otherwise.
+     */
+    private boolean isStaged(long pos) {
+        return isStaged(Location.rowOf(pos), Location.columnOf(pos));
+    }
+
+    /**
+     * Rebuilds the whole stage from scratch, rather than moving nodes one by
+     * one, after the components that have nodes may have changed all over.
+     */
+    private void restage() {
+        ArrayList<Node> nodes = new ArrayList<>();
+        for (Cell cell : cells)
+            if (!isDrawnOnCanvas(cell) && isStaged(cell.getHeadPosition())) {
+                nodes.add(cell);
+            }
+        pnlBase.getChildren().setAll(nodes);
+
+        if (!batched) {
+            pnlTerrain.getChildren().remove(cellCanvas);
+        } else if (cellCanvas.getParent() == null) {
+            pnlTerrain.getChildren().add(cellCanvas);
+        }
+
+        for (StageLayer layer : layers.values())
+            layer.rebuild();
+        requestRedraw();
+    }
+
+    /**
+     * Puts on or takes off the stage the nodes of every location around an
+     * area, depending on whether if each location is on the stage now.
+     *
+     * @param top    the first row of the area.
+     * @param left   the first column of the area.
+     * @param bottom the row past the last row of the area.
+     * @param right  the column past the last column of the area.
+     */
+    private void restageArea(int top, int left, int bottom, int right) {
+        for (int r = Math.max(0, top - STAGE_MARGIN); r < Math.min(rows,
+                bottom + STAGE_MARGIN); r++)
+            for (int c = Math.max(0, left - STAGE_MARGIN); c < Math.min(cols,
+                    right + STAGE_MARGIN); c++) {
+                boolean staged = isStaged(r, c);
+                Cell cell = base[r][c];
+                if (cell != null && cell.getParentGrid() == this &&
+                        !isDrawnOnCanvas(cell)) {
+                    boolean shown = cell.getParent() == pnlBase;
+                    if (!staged && shown) {
+                        pnlBase.getChildren().remove(cell);
+                    } else if (staged && !shown) {
+                        pnlBase.getChildren().add(cell);
+                    }
+                }
+
+                List<Actor> occupied = occupants[r * cols + c];
+                if (occupied != null) {
+                    for (Actor a : occupied)
+                        restageActor(a);
+                }
+            }
+    }
+
+    /**
+     * Puts an actor's node on or takes it off the stage, depending on
+     * whether if it moved onto or off the stage. Only that one node is
+     * touched, so this costs the same no matter how many actors there are.
+     *
+     * @param comp the actor to check.
+     */
+    private void restageActor(Actor comp) {
+        boolean staged = !isDrawnOnCanvas(comp) && isStaged(comp
+                .getHeadPosition());
+        boolean shown = comp.getParent() instanceof StageLayer;
+        if (staged == shown) {
+            return;
+        }
+
+        if (shown) {
+            ((StageLayer) comp.getParent()).getChildren().remove(comp);
+        } else {
+            StageLayer layer = layerOf(comp);
+            if (layer != null) {
+                layer.stageActor(comp);
+            }
+        }
+    }
+
+    /**
+     * Determines whether if a component is drawn onto a canvas rather than
+     * having a node of its own on the stage.
+     *
+     * @param comp the component to check.
+     * @return true if drawn onto a canvas, false if it has a node.
+     */
+    private boolean isDrawnOnCanvas(Component comp) {
+        if (comp instanceof Actor && ((Actor) comp).isSprite()) {
+            return true;
+        }
+        return batched && comp.isDrawable();
+    }
+
+    /**
+     * Prepares a canvas to be redrawn: it is fitted over the view window and
+     * cleared, and its graphics context is set up to draw in the coordinates
+     * of this grid.
+     *
+     * @param canvas the canvas to draw on.
+     * @return the graphics context of the canvas.
+     */
+    private GraphicsContext beginDraw(Canvas canvas) {
+        double x = windowLeft * CELL_SIZE;
+        double y = windowTop * CELL_SIZE;
+        double width = windowCols * CELL_SIZE;
+        double height = windowRows * CELL_SIZE;
+        if (canvas.getWidth() != width) {
+            canvas.setWidth(width);
+        }
+        if (canvas.getHeight() != height) {
+            canvas.setHeight(height);
+        }
+        canvas.setTranslateX(x);
+        canvas.setTranslateY(y);
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setTransform(1, 0, 0, 1, -x, -y);
+        gc.clearRect(x, y, width, height);
+        return gc;
+    }
+
+    /**
+     * Bakes the static cells around the view window that changed, and
+     * redraws all the other cells within the view window in one batch, if
+     * this grid renders in batches. Like sprites, nothing is drawn while
+     * this grid is not shown.
+     */
+    private void drawCells() {
+        if (getScene() == null) {
+            return;
+        }
+
+        bakedTerrain.bake(windowTop - STAGE_MARGIN, windowLeft - STAGE_MARGIN,
+                windowTop + windowRows + STAGE_MARGIN, windowLeft +
+                        windowCols + STAGE_MARGIN);
+        if (!batched) {
+            return;
+        }
+
+        GraphicsContext gc = beginDraw(cellCanvas);
+        for (int r = windowTop; r < windowTop + windowRows; r++)
+            for (int c = windowLeft; c < windowLeft + windowCols; c++) {
+                Cell cell = base[r][c];
+                if (cell != null && cell.getParentGrid() == this && cell
+                        .isDrawable() && isInSight(r, c)) {
+                    cell.drawOn(gc);
+                }
+            }
+    }
+
+    /**
+     * Redraws all the canvases of this grid once it is next laid out, after
+     * a change made outside of a frame.
+     */
+    private void requestRedraw() {
+        requestLayout();
+        for (StageLayer layer : layers.values())
+            layer.requestLayout();
+    }
+
+    /**
+     * Obtains the index into the occupant table of a location.
+     *
+     * @param pos the packed (valid) location.
+     * @return the index of that location.
+     */
+    private int indexOf(long pos) {
+        return Location.rowOf(pos) * cols + Location.columnOf(pos);
+    }
+
+    /**
+     * Adds an actor into the occupant table at its current location.
+     *
+     * @param comp the actor to add.
+     */
+    private void occupy(Actor comp) {
+        int index = indexOf(comp.getHeadPosition());
+        if (occupants[index] == null) {
+            occupants[index] = new ArrayList<>(2);
+        }
+        occupants[index].add(comp);
+        if (terrain != null) {
+            terrain.residentChanged(comp, comp.getHeadPosition());
+        }
+        if (visibility != null) {
+            opacityChanged(comp.getHeadPosition());
+            comp.setVisible(isInSight(comp.getHeadPosition()));
+        }
+        restageActor(comp);
+    }
+
+    /**
+     * Removes an actor from the occupant table.
+     *
+     * @param comp the actor to remove.
+     * @param pos  the location the actor was occupying.
+     */
+    private void vacate(Actor comp, long pos) {
+        List<Actor> occupied = occupants[indexOf(pos)];
+        if (occupied != null) {
+            occupied.remove(comp);
+        }
+        if (terrain != null) {
+            terrain.residentChanged(comp, pos);
+        }
+        opacityChanged(pos);
+    }
+
+    /**
+     * Checks whether if an actor of exactly a particular class occupies a
+     * location.
+     *
+     * @param type the class of actor.
+     * @param row  the row of the location.
+     * @param col  the column of the location.
+     * @return true if such an actor is there, false otherwise.
+     */
+    boolean isOccupiedBy(Class<?> type, int row, int col) {
+        List<Actor> occupied = occupants[row * cols + col];
+        if (occupied != null) {
+            for (Actor a : occupied)
+                if (a.getClass() == type) {
+                    return true;
+                }
+        }
+        return false;
+    }
+
+    /**
+     * Brings everything that is kept about the cell at a location up to
+     * date, after that cell has changed or is about to transform.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    void cellChanged(int row, int col) {
+        passability.update(row, col);
+        if (terrain != null) {
+            terrain.cellChanged(row, col);
+        }
+        if (visibility != null) {
+            visibility.invalidate(row, col);
+            cull(row, col);
+        }
+        bakedTerrain.invalidate(row, col);
+        if (!updating) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Notes that whether if a location blocks sight might have changed,
+     * e.g. because an actor there started dying.
+     *
+     * @param pos the packed location.
+     */
+    void opacityChanged(long pos) {
+        if (visibility != null && isValidLocation(pos)) {
+            visibility.invalidate(Location.rowOf(pos), Location.columnOf(pos));
+        }
+    }
+
+    /**
+     * Checks whether if a location blocks sight, i.e. whether if its cell or
+     * any actor there is opaque.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     * @return true if opaque, false otherwise.
+     * @see Cell#isOpaque()
+     * @see Actor#isOpaque()
+     */
+    boolean isOpaque(int row, int col) {
+        Cell cell = base[row][col];
+        if (cell != null && cell.isOpaque()) {
+            return true;
+        }
+        List<Actor> occupied = occupants[row * cols + col];
+        if (occupied != null) {
+            for (Actor a : occupied)
+                if (a.isOpaque()) {
+                    return true;
+                }
+        }
+        return false;
+    }
+
+    /**
+     * Brings the line of sight of the fog of war up to date with the player,
+     * and shows or hides the components of every location that came into
+     * or went out of sight.
+     */
+    private void updateVisibility() {
+        if (visibility == null || player == null) {
+            return;
+        }
+        BitSet changed = visibility.update(player.getHeadPosition());
+        if (changed == null) {
+            return;
+        }
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(
+                i + 1))
+            cull(i / cols, i % cols);
+    }
+
+    /**
+     * Shows or hides the nodes of a location, depending on whether if it is
+     * in sight. Hidden nodes are skipped by the renderer altogether, and the
+     * baked terrain there is baked again.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    private void cull(int row, int col) {
+        boolean shown = isInSight(row, col);
+        Cell cell = base[row][col];
+        if (cell != null && cell.getParentGrid() == this) {
+            cell.setVisible(shown);
+        }
+        bakedTerrain.invalidate(row, col);
+        List<Actor> occupied = occupants[row * cols + col];
+        if (occupied != null) {
+            for (Actor a : occupied)
+                a.setVisible(shown);
+        }
+    }
+
+    /**
+     * Makes sure that a row of cells is owned by this grid alone before it
+     * is written to, copying it if it is shared with a fork.
+     *
+     * @param row the row index about to be changed.
+     */
+    private void ownRow(int row) {
+        if (sharedRows[row]) {
+            base[row] = base[row].clone();
+            sharedRows[row] = false;
+        }
+    }
+
+    /**
+     * Takes all the actors removed within this frame off the stage. This is
+     * done with one bulk removal, so that the stage only has to process a
+     * single change (and re-layout) no matter how many actors died.
+     */
+    private void flushRemovals() {
+        if (pendingRemovals.isEmpty()) {
+            return;
+        }
+        for (StageLayer layer : layers.values())
+            layer.getChildren().removeAll(pendingRemovals);
+        pendingRemovals.clear();
+    }
+
+    /**
+     * Defers bringing a component's node up to date until the end of the
+     * frame being updated, if any.
+     *
+     * @param comp the component whose view changed.
+     * @return true if deferred, false if the grid is not updating a frame, in
+     * which case the node should be updated right away.
+     * @see Component#invalidateView()
+     */
+    boolean deferView(Component comp) {
+        if (!updating) {
+            return false;
+        }
+        pendingViews.add(comp);
+        return true;
+    }
+
+    /**
+     * Brings the nodes of all the components whose view changed within this
+     * frame up to date, so that the stage is only changed once per frame.
+     */
+    private void flushViews() {
+        //Index loop, since flushing must not queue anything else.
+        for (int i = 0; i < pendingViews.size(); i++)
+            pendingViews.get(i).flushView();
+        pendingViews.clear();
+    }
+
+    /**
+     * Obtains the stage layer that holds all actors of a particular
+     * dominance level, creating it if it does not exist yet. Layers are
+     * z-ordered so that more dominant actors fall underneath less
+     * dominant actors.
+     *
+     * @param level the dominance level (for z-order) of the layer.
+     * @return the stage layer.
+     */
+    private StageLayer layerFor(DominanceLevel level) {
+        StageLayer layer = layers.get(level);
+        if (layer == null) {
+            layer = new StageLayer(level);
+            layer.setPickOnBounds(false);
+            pnlStage.getChildren().add(layers.headMap(level).size(), layer);
+            layers.put(level, layer);
+        }
+        return layer;
+    }
+
+    /**
+     * Obtains the stage layer that holds an actor. Sprites have no node on
+     * the stage, so their layer is found through the layers' registries.
+     *
+     * @param comp the actor placed in this grid.
+     * @return the stage layer, or null if no layer holds the actor.
+     */
+    private StageLayer layerOf(Actor comp) {
+        if (comp.getParent() instanceof StageLayer) {
+            return (StageLayer) comp.getParent();
+        }
+        for (StageLayer layer : layers.values())
+            if (layer.actors.contains(comp)) {
+                return layer;
+            }
+        return null;
+    }
+
+    /**
+     * Takes an actor's node off the stage layer that contains it.
+     *
+     * @param comp the actor to take off the stage.
+     */
+    private void detachActor(Actor comp) {
+        if (comp.getParent() instanceof Pane) {
+            ((Pane) comp.getParent()).getChildren().remove(comp);
+        }
     }
 
     /**
@@ -491,62 +1882,147 @@ public class Grid extends Pane implements Serializable {
      * then moves up in actor dominance from highest to lowest
      *
      * @param visitor the actor visitor that will move.
-     * @param row     row of the new location.
-     * @param col     column of the new location.
+     * @param pos     packed location of the new location.
      * @param execute true if to execute move, false
      * @return true if the visit is permitted, false otherwise.
      */
-    private boolean checkVisit(Actor visitor, int row, int col, boolean execute) {
+    private boolean checkVisit(Actor visitor, long pos, boolean execute) {
         if (visitor.isMoving()) {
             return false;
         }
 
-        if (!isValidLocation(row, col)) {
+        if (!isValidLocation(pos)) {
             return false;
         }
 
-        if (base[row][col] != null && !base[row][col].checkPass(visitor)) {
+        int row = Location.rowOf(pos);
+        int col = Location.columnOf(pos);
+        if (!canVisit(visitor, passability.categoryOf(visitor), row, col)) {
             return false;
         }
+        return !execute || visit(visitor, row, col);
+    }
 
-        List<Actor> residents = getResidents(visitor, row, col);
-        residents.remove(visitor);
-
-        Actor[] master = new Actor[residents.size()];
-        Actor[] slave = new Actor[residents.size()];
-        for (int i = 0; i < residents.size(); i++) {
-            Actor res = residents.get(i);
-            if (visitor.dominanceLevelFor(res).compareTo(
-                    res.dominanceLevelFor(visitor)) >= 0) {
-                master[i] = visitor;
-                slave[i] = res;
-            } else {
-                master[i] = res;
-                slave[i] = visitor;
-            }
-            if (!master[i].checkInteract(slave[i])) {
-                return false;
-            }
+    /**
+     * Checks whether if a visitor can move into a location within this grid,
+     * i.e. whether if the cell there lets it pass, and it can interact with
+     * all the residents there. The residents are read in place; only a
+     * location with several residents needs them sorted into a new list.
+     *
+     * @param visitor the actor visitor that will move.
+     * @param cat     the passability category of the visitor.
+     * @param row     the row of the location.
+     * @param col     the column of the location.
+     * @return true if the visitor can move there, false otherwise.
+     */
+    private boolean canVisit(Actor visitor, PassabilityMap.Category cat,
+                             int row, int col) {
+        if (!passability.permits(cat, visitor, row, col)) {
+            return false;
         }
 
-        if (!execute) {
+        List<Actor> occupied = occupants[row * cols + col];
+        if (occupied == null || occupied.isEmpty()) {
             return true;
         }
+        if (occupied.size() == 1) {
+            Actor res = occupied.get(0);
+            return res == visitor || (isMaster(visitor, res) ?
+                    visitor.checkInteract(res) : res.checkInteract(visitor));
+        }
+
+        List<Actor> residents = getResidents(visitor, Location.pack(row,
+                col));
+        residents.remove(visitor);
+        return checkInteractions(visitor, residents);
+    }
+
+    /**
+     * Moves a visitor into a location, which must already have been checked
+     * with {@link #canVisit(Actor, PassabilityMap.Category, int, int)}. This
+     * lets the cell there and each of the residents there act on the
+     * visitor, which may still refuse it.
+     *
+     * @param visitor the actor visitor that will move.
+     * @param row     the row of the location.
+     * @param col     the column of the location.
+     * @return true if and only if the visitor moved.
+     */
+    private boolean visit(Actor visitor, int row, int col) {
+        List<Actor> occupied = occupants[row * cols + col];
+        Actor[] master = null;
+        Actor[] slave = null;
+        int pairs = 0;
+        if (occupied != null && !occupied.isEmpty()) {
+            List<Actor> residents = occupied.size() == 1 ? occupied :
+                    getResidents(visitor, Location.pack(row, col));
+            master = new Actor[residents.size()];
+            slave = new Actor[residents.size()];
+            for (Actor res : residents) {
+                if (res == visitor) {
+                    continue;
+                }
+                boolean dominant = isMaster(visitor, res);
+                master[pairs] = dominant ? visitor : res;
+                slave[pairs] = dominant ? res : visitor;
+                pairs++;
+            }
+        }
 
         if (base[row][col] != null && !base[row][col].pass(visitor)) {
             return false;
         }
 
-        for (int i = 0; i < residents.size(); i++)
+        for (int i = 0; i < pairs; i++)
             if (!master[i].interact(slave[i])) {
                 return false;
             }
 
+        long from = visitor.getHeadPosition();
         visitor.getHeadLocation().setLocation(row, col);
+        if (entities.contains(visitor)) {
+            vacate(visitor, from);
+            occupy(visitor);
+        }
 
         return true;
     }
 
+    /**
+     * Determines whether if a visitor is the more dominant actor of its pair
+     * with a resident, i.e. the one that checks (and executes) the
+     * interaction.
+     *
+     * @param visitor the actor visitor that will move.
+     * @param res     the resident of the location.
+     * @return true if the visitor is dominant, false if the resident is.
+     */
+    private static boolean isMaster(Actor visitor, Actor res) {
+        return visitor.dominanceLevelFor(res).compareTo(
+                res.dominanceLevelFor(visitor)) >= 0;
+    }
+
+    /**
+     * Checks whether if a visitor can interact with all the residents of a
+     * location. For each pair, the more dominant actor checks the
+     * interaction.
+     *
+     * @param visitor   the actor visitor that will move.
+     * @param residents the residents of the location, excluding the visitor.
+     * @return true if all interactions are permitted, false otherwise.
+     */
+    private boolean checkInteractions(Actor visitor, List<Actor> residents) {
+        for (int i = 0; i < residents.size(); i++) {
+            Actor res = residents.get(i);
+            boolean permitted = isMaster(visitor, res) ?
+                    visitor.checkInteract(res) : res.checkInteract(visitor);
+            if (!permitted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Reads this object from the provided input stream.
      *
@@ -557,24 +2033,327 @@ public class Grid extends Pane implements Serializable {
     private void readObject(java.io.ObjectInputStream in)
             throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        if (profile == null) {
+            profile = EngineProfile.STRICT;
+        }
+        initStage();
 
-        pnlBase = new ComponentPane();
-        pnlStage = new ComponentPane();
-        getChildren().addAll(pnlBase, pnlStage);
+        //The components are added back in the order they were updated in.
+        for (Cell cell : (Cell[]) in.readObject()) {
+            cells.add(cell);
+            pnlBase.getChildren().add(cell);
+        }
+        int layerCount = in.readInt();
+        for (int i = 0; i < layerCount; i++) {
+            StageLayer layer = layerFor((DominanceLevel) in.readObject());
+            for (Actor actor : (Actor[]) in.readObject()) {
+                layer.addActor(actor);
+                occupy(actor);
+            }
+        }
+        if (terrain != null) {
+            terrain.attach(this);
+        }
+    }
+
+    /**
+     * Writes this object to the provided output stream.
+     *
+     * @param out the output stream to write to
+     * @throws IOException if an I/O error occurs, or if this grid is a fork.
+     */
+    private void writeObject(java.io.ObjectOutputStream out)
+            throws IOException {
+        if (forked) {
+            throw new NotSerializableException("Forked grids cannot be " +
+                    "serialized");
+        }
+        out.defaultWriteObject();
+
+        //The order of updates is kept apart from the entity table, since
+        //the slots of the table are reused in a different order.
+        ArrayList<Cell> owned = new ArrayList<>();
+        for (Cell cell : cells)
+            owned.add(cell);
+        out.writeObject(owned.toArray(new Cell[0]));
+        out.writeInt(layers.size());
+        for (Map.Entry<DominanceLevel, StageLayer> entry : layers.entrySet()) {
+            ArrayList<Actor> actors = new ArrayList<>();
+            for (Actor actor : entry.getValue().actors)
+                actors.add(actor);
+            out.writeObject(entry.getKey());
+            out.writeObject(actors.toArray(new Actor[0]));
+        }
+    }
+
+    /**
+     * Refers to the grid being forked within a fork stream.
+     */
+    private enum ForkToken {
+        SOURCE_GRID
+    }
+
+    /**
+     * Refers to a static cell shared with a fork within a fork stream.
+     */
+    private static class SharedCell implements Serializable {
+        private static final long serialVersionUID = -4410736201876953528L;
+        private final long pos;
+
+        /**
+         * Constructs a new reference to a shared cell.
+         *
+         * @param pos the packed location of the shared cell.
+         */
+        SharedCell(long pos) {
+            this.pos = pos;
+        }
+    }
+
+    /**
+     * Writes the copied components of a fork, replacing references to this
+     * grid and its shared cells with tokens.
+     *
+     * @author Henry Wang
+     */
+    private class ForkOutputStream extends ObjectOutputStream {
+        /**
+         * Constructs a new fork stream.
+         *
+         * @param out the stream to write to.
+         * @throws IOException if an I/O error occurs writing the header.
+         */
+        ForkOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
 
-        for (Cell[] row : base)
-            for (Cell cell : row)
-                if (cell != null) {
-                    pnlBase.getChildren().add(cell);
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj == Grid.this) {
+                return ForkToken.SOURCE_GRID;
+            }
+            if (obj instanceof Cell && ((Cell) obj).isStatic()) {
+                Cell cell = (Cell) obj;
+                long pos = cell.getHeadPosition();
+                if (cell.getParentGrid() == Grid.this && getCellAt(pos) ==
+                        cell) {
+                    return new SharedCell(pos);
                 }
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Reads the copied components of a fork, resolving the tokens written
+     * by {@link ForkOutputStream} to the fork and its shared cells.
+     *
+     * @author Henry Wang
+     */
+    private static class ForkInputStream extends ObjectInputStream {
+        private final Grid fork;
+
+        /**
+         * Constructs a new fork stream.
+         *
+         * @param in   the stream to read from.
+         * @param fork the grid being forked into.
+         * @throws IOException if an I/O error occurs reading the header.
+         */
+        ForkInputStream(InputStream in, Grid fork) throws IOException {
+            super(in);
+            this.fork = fork;
+            enableResolveObject(true);
+        }
 
-        PriorityQueue<Actor> stage = new PriorityQueue<>(Comparator.comparing
-                (actor -> actor.dominanceLevelFor(null), Comparator
-                        .reverseOrder()));
-        stage.addAll(actorLocs.keySet());
-        while (!stage.isEmpty())
-            pnlStage.getChildren().add(stage.poll());
-        pnlStage.getChildren().addAll(stage);
+        @Override
+        protected Object resolveObject(Object obj) {
+            if (obj == ForkToken.SOURCE_GRID) {
+                return fork;
+            }
+            if (obj instanceof SharedCell) {
+                return fork.getCellAt(((SharedCell) obj).pos);
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Manages the stack of actor layers, each spanning the full area of
+     * the stage.
+     *
+     * @author Henry Wang
+     */
+    private static class LayeredPane extends Pane {
+        /**
+         * Lays all the layers of this stage.
+         */
+        @Override
+        protected void layoutChildren() {
+            for (Node child : getManagedChildren()) {
+                layoutInArea(child, 0, 0, getWidth(), getHeight(), 0,
+                        HPos.CENTER, VPos.CENTER);
+            }
+        }
+    }
+
+    /**
+     * Manages the actors of one dominance level, keeping both their nodes
+     * and a registry of them in the same (insertion) order. Sprites (and,
+     * when the grid renders in batches, every actor that can be drawn) have
+     * no nodes, and are instead all drawn onto one canvas underneath the
+     * nodes of this layer.
+     *
+     * @author Henry Wang
+     * @see Actor#isSprite()
+     */
+    private class StageLayer extends ComponentPane {
+        private final DominanceLevel level;
+        private final ComponentRegistry<Actor> actors =
+                new ComponentRegistry<>();
+        private Canvas sprites;
+        private final ArrayList<Actor> drawn = new ArrayList<>();
+
+        /**
+         * Constructs a new stage layer.
+         *
+         * @param level the dominance level (for z-order) of this layer.
+         */
+        StageLayer(DominanceLevel level) {
+            this.level = level;
+        }
+
+        /**
+         * Adds an actor to this layer.
+         *
+         * @param comp the actor to add.
+         */
+        void addActor(Actor comp) {
+            actors.add(comp);
+            if (!isDrawnOnCanvas(comp)) {
+                if (isStaged(comp.getHeadPosition())) {
+                    getChildren().add(comp);
+                }
+                return;
+            }
+
+            if (sprites == null) {
+                getChildren().add(0, createCanvas());
+            }
+            requestLayout();
+        }
+
+        /**
+         * Puts the node of an actor of this layer on the stage, in the same
+         * place as the actor is within the update order. Since the nodes are
+         * kept in that order, the place is found by a binary search.
+         *
+         * @param comp the actor to put on the stage.
+         */
+        void stageActor(Actor comp) {
+            List<Node> nodes = getChildren();
+            int lo = sprites == null ? 0 : 1;
+            int hi = nodes.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+
+                //Skip nodes of actors removed within this frame, which are
+                //out of the order (and soon off the stage).
+                int probe = mid;
+                while (probe < hi && ((Component) nodes.get(probe))
+                        .registrySlot < 0)
+                    probe++;
+                if (probe == hi) {
+                    hi = mid;
+                } else if (((Component) nodes.get(probe)).registrySlot <
+                        comp.registrySlot) {
+                    lo = probe + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            nodes.add(lo, comp);
+        }
+
+        /**
+         * Rebuilds all the nodes of this layer from scratch, after the
+         * components that are drawn onto the canvas may have changed (i.e.
+         * batch rendering was turned on or off). This keeps the nodes in the
+         * same order as the actors.
+         */
+        void rebuild() {
+            ArrayList<Node> nodes = new ArrayList<>();
+            boolean drawn = false;
+            for (Actor a : actors) {
+                if (isDrawnOnCanvas(a)) {
+                    drawn = true;
+                } else if (isStaged(a.getHeadPosition())) {
+                    nodes.add(a);
+                }
+            }
+            if (sprites != null || drawn) {
+                nodes.add(0, sprites == null ? createCanvas() : sprites);
+            }
+            getChildren().setAll(nodes);
+            requestLayout();
+        }
+
+        /**
+         * Creates the canvas of this layer.
+         *
+         * @return the new canvas.
+         */
+        private Canvas createCanvas() {
+            sprites = new Canvas();
+            sprites.setManaged(false);
+            sprites.setMouseTransparent(true);
+            return sprites;
+        }
+
+        /**
+         * Redraws all the sprites of this layer within the view window (give
+         * or take a cell, for sprites moving in or out of it) in one batch.
+         * The sprites are found through the occupants of the window, so
+         * this costs the same no matter how many actors there are, and they
+         * are drawn in update order. Nothing is drawn while this layer is
+         * not shown, since the canvas would only pile up drawing commands;
+         * the sprites are drawn once it is laid out instead.
+         */
+        void drawSprites() {
+            if (sprites == null || getScene() == null) {
+                return;
+            }
+
+            GraphicsContext gc = beginDraw(sprites);
+            int bottom = Math.min(rows, windowTop + windowRows + 1);
+            int right = Math.min(cols, windowLeft + windowCols + 1);
+            for (int r = Math.max(0, windowTop - 1); r < bottom; r++)
+                for (int c = Math.max(0, windowLeft - 1); c < right; c++) {
+                    List<Actor> occupied = occupants[r * cols + c];
+                    if (occupied == null || !isInSight(r, c)) {
+                        continue;
+                    }
+                    for (Actor a : occupied)
+                        if (actors.contains(a) && isDrawnOnCanvas(a)) {
+                            drawn.add(a);
+                        }
+                }
+
+            drawn.sort(UPDATE_ORDER);
+            for (Actor a : drawn)
+                a.drawOn(gc);
+            drawn.clear();
+        }
+
+        /**
+         * Lays out the nodes of this layer, and redraws the sprites.
+         */
+        @Override
+        protected void layoutChildren() {
+            super.layoutChildren();
+            drawSprites();
+        }
     }
 
     /**
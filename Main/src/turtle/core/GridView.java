@@ -30,6 +30,9 @@ public class GridView extends Pane {
     private final int rows;
     private final int cols;
     private Grid viewed;
+    private int renderInterval;
+    private int visionRadius;
+    private boolean batchRendering;
 
     /**
      * Constructs a GridView.
@@ -43,6 +46,7 @@ public class GridView extends Pane {
 
         rows = (int) (height / CELL_SIZE);
         cols = (int) (width / CELL_SIZE);
+        renderInterval = 1;
         initGrid(init);
 
         setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
@@ -106,7 +110,73 @@ public class GridView extends Pane {
         }
 
         viewed.updateFrame(frame);
-        updatePos();
+        if (frame % renderInterval == 0) {
+            updatePos();
+        }
+    }
+
+    /**
+     * Sets how often the view follows the player, e.g. to lighten the
+     * load of each frame on slow machines.
+     *
+     * @param renderInterval the number of frames between each update of the
+     *                       view position.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    public void setRenderInterval(int renderInterval) {
+        if (renderInterval < 1) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        this.renderInterval = renderInterval;
+    }
+
+    /**
+     * @return the radius of sight of the fog of war over the grids viewed, or
+     * 0 if there is no fog of war.
+     */
+    public int getVisionRadius() {
+        return visionRadius;
+    }
+
+    /**
+     * Sets the fog of war over the grid viewed, and over every grid viewed
+     * after it.
+     *
+     * @param visionRadius the radius of sight, in cells, or 0 to lift the fog
+     *                     of war.
+     * @throws IllegalArgumentException if the radius is negative.
+     * @see Grid#setVisionRadius(int)
+     */
+    public void setVisionRadius(int visionRadius) {
+        if (visionRadius < 0) {
+            throw new IllegalArgumentException("Radius must be non-negative.");
+        }
+        this.visionRadius = visionRadius;
+        if (viewed != null) {
+            viewed.setVisionRadius(visionRadius);
+        }
+    }
+
+    /**
+     * @return true if the grids viewed render in batches, false otherwise.
+     */
+    public boolean isBatchRendering() {
+        return batchRendering;
+    }
+
+    /**
+     * Sets whether if the grid viewed, and every grid viewed after it,
+     * render in batches onto canvases instead of with a node for every
+     * component.
+     *
+     * @param batchRendering true to render in batches, false otherwise.
+     * @see Grid#setBatchRendering(boolean)
+     */
+    public void setBatchRendering(boolean batchRendering) {
+        this.batchRendering = batchRendering;
+        if (viewed != null) {
+            viewed.setBatchRendering(batchRendering);
+        }
     }
 
     /**
@@ -215,6 +285,8 @@ public class GridView extends Pane {
      */
     private void initGrid0(Grid grid) {
         if (grid != null) {
+            grid.setVisionRadius(visionRadius);
+            grid.setBatchRendering(batchRendering);
             getChildren().add(0, grid);
         }
         layoutChildren();
@@ -235,10 +307,16 @@ public class GridView extends Pane {
         }
 
         double cell = CELL_SIZE;
-        viewed.setTranslateX(-calcOffset(viewed.getWidth(),
-                viewed.getColumns() * cell, p.getTranslateX()));
-        viewed.setTranslateY(-calcOffset(viewed.getHeight(),
-                viewed.getRows() * cell, p.getTranslateY()));
+        double offX = calcOffset(viewed.getWidth(), viewed.getColumns() * cell,
+                p.getTranslateX());
+        double offY = calcOffset(viewed.getHeight(), viewed.getRows() * cell,
+                p.getTranslateY());
+        viewed.setTranslateX(-offX);
+        viewed.setTranslateY(-offY);
+
+        //One more cell each way, for the cells partly in view.
+        viewed.setViewWindow((int) Math.floor(offY / cell), (int) Math.floor(
+                offX / cell), rows + 1, cols + 1);
     }
 
     /**
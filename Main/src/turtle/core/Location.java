@@ -3,11 +3,20 @@ package turtle.core;
 import java.io.Serializable;
 
 /**
- * Represents a location of a Component.
+ * Represents a location of a Component. Hot paths within the engine work
+ * instead with locations packed into a single long (the row in the upper
+ * 32 bits and the column in the lower 32 bits), as created by
+ * {@link #pack(int, int)}. All invalid locations pack to the same value
+ * {@link #INVALID}, just as all invalid locations are equal.
  *
  * @author Henry Wang
  */
 public class Location implements Serializable {
+    /**
+     * The packed value of every invalid location.
+     */
+    public static final long INVALID = -1L;
+
     private static final long serialVersionUID = -8522783415556204226L;
 
     private int row;
@@ -41,6 +50,59 @@ public class Location implements Serializable {
         this.col = other.col;
     }
 
+    /**
+     * Packs a row/column location into a single long value.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     * @return the packed location, or {@link #INVALID} if either the row
+     * or the column is negative.
+     */
+    public static long pack(int row, int col) {
+        if (row < 0 || col < 0) {
+            return INVALID;
+        }
+        return ((long) row << 32) | col;
+    }
+
+    /**
+     * Obtains the row of a packed location.
+     *
+     * @param pos the packed location.
+     * @return the row, or -1 if the location is invalid.
+     */
+    public static int rowOf(long pos) {
+        return (int) (pos >> 32);
+    }
+
+    /**
+     * Obtains the column of a packed location.
+     *
+     * @param pos the packed location.
+     * @return the column, or -1 if the location is invalid.
+     */
+    public static int columnOf(long pos) {
+        return (int) pos;
+    }
+
+    /**
+     * Determines whether if a packed location is valid or not.
+     *
+     * @param pos the packed location.
+     * @return true for valid locations, false for invalid locations.
+     */
+    public static boolean isValid(long pos) {
+        return pos >= 0;
+    }
+
+    /**
+     * @return this location packed into a single long value.
+     * @see #pack(int, int)
+     */
+    public long pack() {
+        return pack(row, col);
+    }
+
     /**
      * Determines whether if this location is valid or not.
      *
@@ -88,6 +150,16 @@ public class Location implements Serializable {
         this.col = other.col;
     }
 
+    /**
+     * Sets the location to the values of a packed location.
+     *
+     * @param pos the packed location to set to.
+     */
+    public void setLocation(long pos) {
+        this.row = rowOf(pos);
+        this.col = columnOf(pos);
+    }
+
     /**
      * @return a hashcode generated from the current position
      */
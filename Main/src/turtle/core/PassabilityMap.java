@@ -0,0 +1,173 @@
+package turtle.core;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of which cells of a grid have a fixed answer to
+ * {@link Cell#checkPass(Actor)} for each class of visitor. This lets the grid
+ * accept or reject a move onto most cells with a bit test, without calling
+ * into the cell at all. The bits of a location are only recomputed whenever
+ * a cell is placed there or removed from there.
+ *
+ * @author agent
+ */
+final class PassabilityMap {
+    private final Cell[][] base;
+    private final int cols;
+    private final HashMap<Class<?>, Category> categories;
+
+    /**
+     * Constructs an empty passability map over the cells of a grid.
+     *
+     * @param base the cells of the grid.
+     * @param cols the number of columns of the grid.
+     */
+    PassabilityMap(Cell[][] base, int cols) {
+        this.base = base;
+        this.cols = cols;
+        categories = new HashMap<>();
+    }
+
+    /**
+     * Copies a passability map over the cells of another grid, which must
+     * have the same types of cells in the same locations.
+     *
+     * @param base  the cells of the other grid.
+     * @param other the map to copy from.
+     */
+    PassabilityMap(Cell[][] base, PassabilityMap other) {
+        this.base = base;
+        this.cols = other.cols;
+        categories = new HashMap<>();
+        for (Map.Entry<Class<?>, Category> ent : other.categories
+                .entrySet()) {
+            Category cat = ent.getValue();
+            categories.put(ent.getKey(), cat == null ? null :
+                    new Category(cat));
+        }
+    }
+
+    /**
+     * Checks whether if the cell at a location (if any) lets a visitor pass.
+     * This gives the same answer as {@link Cell#checkPass(Actor)}.
+     *
+     * @param visitor the actor visitor that will move.
+     * @param row     the row of the location.
+     * @param col     the column of the location.
+     * @return true if the cell lets the visitor pass, false otherwise.
+     */
+    boolean permits(Actor visitor, int row, int col) {
+        return permits(categoryOf(visitor), visitor, row, col);
+    }
+
+    /**
+     * Checks whether if the cell at a location (if any) lets a visitor pass,
+     * given the category of the visitor. This saves looking the category up
+     * again when checking several locations for the same visitor.
+     *
+     * @param cat     the category of the visitor, from
+     *                {@link #categoryOf(Actor)}.
+     * @param visitor the actor visitor that will move.
+     * @param row     the row of the location.
+     * @param col     the column of the location.
+     * @return true if the cell lets the visitor pass, false otherwise.
+     */
+    boolean permits(Category cat, Actor visitor, int row, int col) {
+        int index = row * cols + col;
+        if (cat != null && cat.known.get(index)) {
+            return cat.passable.get(index);
+        }
+
+        Cell cell = base[row][col];
+        return cell == null || cell.checkPass(visitor);
+    }
+
+    /**
+     * Recomputes the bits of a location after its cell has changed.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    void update(int row, int col) {
+        for (Category cat : categories.values())
+            if (cat != null) {
+                cat.compute(row, col);
+            }
+    }
+
+    /**
+     * Obtains the category of a visitor, building its map if needed.
+     *
+     * @param visitor the actor visitor.
+     * @return the category, or null if the visitor's class has no sample.
+     */
+    Category categoryOf(Actor visitor) {
+        Class<? extends Actor> type = visitor.getClass();
+        Category cat = categories.get(type);
+        if (cat == null && !categories.containsKey(type)) {
+            Actor sample = ComponentInfo.of(type).getSample();
+            if (sample != null) {
+                cat = new Category(sample);
+                for (int r = 0; r < base.length; r++)
+                    for (int c = 0; c < cols; c++)
+                        cat.compute(r, c);
+            }
+            categories.put(type, cat);
+        }
+        return cat;
+    }
+
+    /**
+     * Holds the bits of one class of visitor.
+     */
+    final class Category {
+        private final Actor sample;
+        private final BitSet known;
+        private final BitSet passable;
+
+        /**
+         * Constructs an empty category.
+         *
+         * @param sample a sample visitor of this class.
+         */
+        Category(Actor sample) {
+            this.sample = sample;
+            known = new BitSet();
+            passable = new BitSet();
+        }
+
+        /**
+         * Copies a category.
+         *
+         * @param other the category to copy from.
+         */
+        Category(Category other) {
+            sample = other.sample;
+            known = (BitSet) other.known.clone();
+            passable = (BitSet) other.passable.clone();
+        }
+
+        /**
+         * Computes the bits of one location.
+         *
+         * @param row the row of the location.
+         * @param col the column of the location.
+         */
+        void compute(int row, int col) {
+            int index = row * cols + col;
+            Cell cell = base[row][col];
+            if (cell == null) {
+                known.set(index);
+                passable.set(index);
+            } else if (cell.isPassStatic()) {
+                known.set(index);
+                passable.set(index, cell.checkPass(sample));
+            } else {
+                known.clear(index);
+                passable.clear(index);
+            }
+        }
+    }
+}
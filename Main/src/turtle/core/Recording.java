@@ -170,9 +170,10 @@ public class Recording implements Serializable {
         return baos.toByteArray();
     }
 
-    private HashMap<Long, Integer> moves;
+    private TreeMap<Long, Integer> moves;
     private long rngSeed;
     private long maxFrame;
+    private EngineProfile profile;
 
     private Grid grid;
 
@@ -205,10 +206,11 @@ public class Recording implements Serializable {
      * Resets this recording object
      */
     public void reset() {
-        moves = new HashMap<>();
+        moves = new TreeMap<>();
         started = false;
         maxFrame = -1;
         rngSeed = -1;
+        profile = EngineProfile.STRICT;
 
         grid = null;
     }
@@ -228,6 +230,7 @@ public class Recording implements Serializable {
         moves.clear();
         moves.putAll(other.moves);
         rngSeed = other.rngSeed;
+        profile = other.profile;
     }
 
     /**
@@ -248,6 +251,13 @@ public class Recording implements Serializable {
             for (int i = 0; i < entries.length; i++)
                 (entries[i] = new CompactMove()).read(dis);
             expandMoves(entries);
+
+            //Recordings of the strict engine have no profile at the end.
+            if (dis.available() > 0) {
+                profile = EngineProfile.read(dis);
+            } else {
+                profile = EngineProfile.STRICT;
+            }
         } catch (DataFormatException e) {
             e.printStackTrace();
             throw new IOException("Compression has been corrupted.");
@@ -268,6 +278,7 @@ public class Recording implements Serializable {
 
         this.grid = grid;
         rngSeed = grid.getRNGSeed();
+        profile = grid.getEngineProfile();
 
         recording = true;
         started = true;
@@ -294,6 +305,9 @@ public class Recording implements Serializable {
         dos.writeInt(entries.length);
         for (CompactMove move : entries)
             move.write(dos);
+        if (!profile.isStrict()) {
+            profile.write(dos);
+        }
 
         return compress(baos.toByteArray());
     }
@@ -316,6 +330,7 @@ public class Recording implements Serializable {
 
         this.grid = grid;
         grid.setRNGSeed(rngSeed);
+        grid.setEngineProfile(profile);
 
         recording = false;
         started = true;
@@ -357,6 +372,41 @@ public class Recording implements Serializable {
 
     }
 
+    /**
+     * Finds the next frame at which a move is played back.
+     *
+     * @param frame the frame to search from (inclusive).
+     * @return the frame of the next move, or -1 if there is none, or if
+     * this is not playing back.
+     */
+    public long nextPlaybackMove(long frame) {
+        if (!started || recording) {
+            return -1;
+        }
+        Long next = moves.ceilingKey(frame);
+        return next == null ? -1 : next;
+    }
+
+    /**
+     * Shifts the last frame recorded, as if it had been recorded some frames
+     * later. This only affects a recording in progress.
+     *
+     * @param delta the number of frames to shift by.
+     * @see Grid#shiftFrames(long)
+     */
+    void shiftFrames(long delta) {
+        if (started && recording) {
+            maxFrame += delta;
+        }
+    }
+
+    /**
+     * @return the engine profile that this recording was played with.
+     */
+    public EngineProfile getEngineProfile() {
+        return profile;
+    }
+
     /**
      * @return the total number of frames recorded
      */
@@ -375,8 +425,7 @@ public class Recording implements Serializable {
         long lastRep = 0;
         long lastFrame = -1;
 
-        TreeMap<Long, Integer> entries = new TreeMap<>(moves);
-        for (Map.Entry<Long, Integer> ent : entries.entrySet()) {
+        for (Map.Entry<Long, Integer> ent : moves.entrySet()) {
             if (ent.getKey() - 1 < lastFrame) {
                 throw new AssertionError("Entries going backwards");
             }
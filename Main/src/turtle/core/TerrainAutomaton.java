@@ -0,0 +1,435 @@
+package turtle.core;
+
+import turtle.comp.Fire;
+import turtle.comp.Grass;
+import turtle.comp.Sand;
+import turtle.comp.Water;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads the terrain of a grid by a set of rules, e.g. fire that spreads
+ * to grass, or water that floods over sand. Each rule turns every location
+ * holding its target that is next to (in one of the four directions) a
+ * cell of its source into a cell of its result, once every so many frames.
+ * <p>
+ * This keeps one bit layer for each class of component named by the rules,
+ * packed 64 locations to a word, and steps all the rules a word at a time
+ * (in parallel for large grids) without going through the components at
+ * all. Only the locations that actually change are written back to the
+ * grid, and a rule that found nothing to spread is not stepped again until
+ * one of the layers changes. All the rules of a frame are stepped from the
+ * layers as they were at the start of that frame, and if more than one rule
+ * would change a location, the first of them wins.
+ *
+ * @author agent
+ */
+public final class TerrainAutomaton implements Serializable {
+    /**
+     * Fire that spreads to the grass next to it, once every two big frames.
+     */
+    public static final Rule FIRE_SPREAD = new Rule(Fire.class, Grass.class,
+            Fire.class, Component.BIG_FRAME * 2);
+
+    /**
+     * Water that floods the sand next to it, once every four big frames.
+     */
+    public static final Rule WATER_FLOOD = new Rule(Water.class, Sand.class,
+            Water.class, Component.BIG_FRAME * 4);
+
+    private static final long serialVersionUID = 4958273162281970413L;
+    private static final int PARALLEL_CELLS = 1 << 14;
+
+    private final Rule[] rules;
+
+    private transient Grid grid;
+    private transient int rows;
+    private transient int cols;
+    private transient int words;
+    private transient Class<?>[] types;
+    private transient long[][] layers;
+    private transient int[] sources;
+    private transient int[] targets;
+    private transient long[][] changes;
+    private transient boolean[] due;
+    private transient long[] stable;
+    private transient long version;
+
+    /**
+     * Constructs a new automaton.
+     *
+     * @param rules the rules by which terrain spreads, in order of
+     *              precedence.
+     * @throws IllegalArgumentException if there are no rules.
+     */
+    public TerrainAutomaton(Rule... rules) {
+        if (rules.length == 0) {
+            throw new IllegalArgumentException("Must have at least one rule.");
+        }
+        for (Rule rule : rules)
+            Objects.requireNonNull(rule, "Rules must be non-null");
+        this.rules = rules.clone();
+    }
+
+    /**
+     * Creates a new automaton with the default rules, i.e. fire spreading to
+     * grass, and water flooding over sand.
+     *
+     * @return the new automaton.
+     * @see #FIRE_SPREAD
+     * @see #WATER_FLOOD
+     */
+    public static TerrainAutomaton createDefault() {
+        return new TerrainAutomaton(FIRE_SPREAD, WATER_FLOOD);
+    }
+
+    /**
+     * @return a list of the rules of this automaton, in order of precedence.
+     */
+    public List<Rule> getRules() {
+        List<Rule> list = new ArrayList<>();
+        for (Rule rule : rules)
+            list.add(rule);
+        return list;
+    }
+
+    /**
+     * Creates a new automaton with the same rules as this one, that is not
+     * attached to any grid yet.
+     *
+     * @return the new automaton.
+     */
+    TerrainAutomaton copy() {
+        return new TerrainAutomaton(rules);
+    }
+
+    /**
+     * Attaches this automaton to a grid, and builds all its layers from the
+     * components currently in that grid.
+     *
+     * @param g the grid to attach to.
+     * @throws IllegalArgumentException if this automaton already belongs to
+     *                                  another grid.
+     */
+    void attach(Grid g) {
+        if (grid != null && grid != g) {
+            throw new IllegalArgumentException("Terrain automaton already " +
+                    "belongs to another grid.");
+        }
+        grid = g;
+        rows = g.getRows();
+        cols = g.getColumns();
+        words = (cols + Long.SIZE - 1) / Long.SIZE;
+
+        ArrayList<Class<?>> found = new ArrayList<>();
+        sources = new int[rules.length];
+        targets = new int[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            sources[i] = layerIndex(found, rules[i].source);
+            targets[i] = layerIndex(found, rules[i].target);
+        }
+        types = found.toArray(new Class<?>[0]);
+        layers = new long[types.length][rows * words];
+        changes = new long[rules.length][rows * words];
+        due = new boolean[rules.length];
+        stable = new long[rules.length];
+        version = 0;
+        for (int i = 0; i < rules.length; i++)
+            stable[i] = -1;
+
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                for (int t = 0; t < types.length; t++)
+                    compute(t, r, c);
+    }
+
+    /**
+     * Obtains the period with which this automaton depends on the absolute
+     * frame number, i.e. the least common multiple of the intervals of all
+     * its rules.
+     *
+     * @return the period in frames.
+     */
+    long getFramePeriod() {
+        long period = 1;
+        for (Rule rule : rules)
+            period = Grid.lcm(period, rule.interval);
+        return period;
+    }
+
+    /**
+     * Recomputes the bits of a location after its cell has changed.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    void cellChanged(int row, int col) {
+        if (grid == null) {
+            return;
+        }
+        for (int t = 0; t < types.length; t++)
+            if (Cell.class.isAssignableFrom(types[t])) {
+                compute(t, row, col);
+            }
+    }
+
+    /**
+     * Recomputes the bits of a location after an actor has come or gone.
+     * This does nothing unless the class of the actor is named by a rule.
+     *
+     * @param comp the actor.
+     * @param pos  the packed location the actor came to or left.
+     */
+    void residentChanged(Actor comp, long pos) {
+        if (grid == null) {
+            return;
+        }
+        for (int t = 0; t < types.length; t++)
+            if (types[t] == comp.getClass()) {
+                compute(t, Location.rowOf(pos), Location.columnOf(pos));
+            }
+    }
+
+    /**
+     * Steps all the rules that are due in a frame, and writes back the
+     * locations that changed to the grid.
+     *
+     * @param frame the frame being updated.
+     */
+    void step(long frame) {
+        if (grid == null) {
+            return;
+        }
+
+        boolean any = false;
+        for (int i = 0; i < rules.length; i++) {
+            due[i] = frame % rules[i].interval == 0 && stable[i] != version;
+            any |= due[i];
+        }
+        if (!any) {
+            return;
+        }
+
+        if (rows * cols >= PARALLEL_CELLS) {
+            IntStream.range(0, rows).parallel().forEach(this::stepRow);
+        } else {
+            for (int r = 0; r < rows; r++)
+                stepRow(r);
+        }
+
+        //Bits are written back in a fixed order, so the outcome never
+        //depends on how the rows were stepped.
+        long before = version;
+        for (int i = 0; i < rules.length; i++) {
+            if (!due[i]) {
+                continue;
+            }
+
+            boolean changed = false;
+            long[] change = changes[i];
+            for (int r = 0; r < rows; r++)
+                for (int w = 0; w < words; w++) {
+                    long bits = change[r * words + w];
+                    while (bits != 0) {
+                        int c = w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        apply(rules[i], r, c);
+                        changed = true;
+                    }
+                }
+            if (!changed) {
+                stable[i] = before;
+            }
+        }
+    }
+
+    /**
+     * Steps all the rules that are due over one row of the layers. This
+     * only reads the layers, and only writes to that row of the changes.
+     *
+     * @param row the row to step.
+     */
+    private void stepRow(int row) {
+        for (int w = 0; w < words; w++) {
+            int index = row * words + w;
+            long claimed = 0;
+            for (int i = 0; i < rules.length; i++) {
+                if (!due[i]) {
+                    continue;
+                }
+
+                long[] src = layers[sources[i]];
+                long spread = (src[index] << 1) | (src[index] >>> 1);
+                if (w > 0) {
+                    spread |= src[index - 1] >>> (Long.SIZE - 1);
+                }
+                if (w < words - 1) {
+                    spread |= src[index + 1] << (Long.SIZE - 1);
+                }
+                if (row > 0) {
+                    spread |= src[index - words];
+                }
+                if (row < rows - 1) {
+                    spread |= src[index + words];
+                }
+
+                long change = spread & layers[targets[i]][index] & ~claimed;
+                claimed |= change;
+                changes[i][index] = change;
+            }
+        }
+    }
+
+    /**
+     * Changes one location by a rule. Any target actors there are removed,
+     * the cell there is replaced with the result of the rule, and all the
+     * actors left there pass the new cell, just as if they had moved onto
+     * it.
+     *
+     * @param rule the rule to apply.
+     * @param row  the row of the location.
+     * @param col  the column of the location.
+     */
+    private void apply(Rule rule, int row, int col) {
+        if (Actor.class.isAssignableFrom(rule.target)) {
+            for (Actor a : grid.getResidents(null, row, col))
+                if (a.getClass() == rule.target) {
+                    grid.removeActor(a);
+                }
+        }
+
+        grid.removeCell(row, col);
+        ComponentInfo<? extends Cell> info = ComponentInfo.of(rule.result);
+        Cell cell = info.getFlyweight();
+        if (cell != null) {
+            grid.placeCell(cell, row, col);
+        } else {
+            cell = info.newInstance();
+            cell.getHeadLocation().setLocation(row, col);
+            grid.placeCell(cell);
+        }
+
+        for (Actor a : grid.getResidents(null, row, col))
+            cell.pass(a);
+    }
+
+    /**
+     * Computes the bit of one layer at one location.
+     *
+     * @param t   the index of the layer.
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    private void compute(int t, int row, int col) {
+        Class<?> type = types[t];
+        boolean set;
+        if (Cell.class.isAssignableFrom(type)) {
+            Cell cell = grid.getCellAt(row, col);
+            set = cell != null && cell.getClass() == type &&
+                    !cell.isTransforming();
+        } else {
+            set = grid.isOccupiedBy(type, row, col);
+        }
+
+        int index = row * words + col / Long.SIZE;
+        long bit = 1L << (col % Long.SIZE);
+        if (set != ((layers[t][index] & bit) != 0)) {
+            layers[t][index] ^= bit;
+            version++;
+        }
+    }
+
+    /**
+     * Finds the index of the layer of a class, adding it if needed.
+     *
+     * @param found the classes of the layers found so far.
+     * @param type  the class to find.
+     * @return the index of its layer.
+     */
+    private static int layerIndex(List<Class<?>> found, Class<?> type) {
+        int index = found.indexOf(type);
+        if (index == -1) {
+            found.add(type);
+            index = found.size() - 1;
+        }
+        return index;
+    }
+
+    /**
+     * Represents one rule by which terrain spreads. Classes are matched
+     * exactly, i.e. a rule never matches subclasses of the classes it names.
+     *
+     * @author agent
+     */
+    public static final class Rule implements Serializable {
+        private static final long serialVersionUID = -6619240357735416508L;
+
+        private final Class<? extends Cell> source;
+        private final Class<? extends Component> target;
+        private final Class<? extends Cell> result;
+        private final int interval;
+
+        /**
+         * Constructs a new rule.
+         *
+         * @param source   the class of cell that spreads.
+         * @param target   the class of cell (or actor) that it spreads to.
+         * @param result   the class of cell that a target next to a source
+         *                 turns into.
+         * @param interval the number of frames between each step of this
+         *                 rule.
+         * @throws IllegalArgumentException if the interval is not positive,
+         *                                  or if the target is the same as
+         *                                  the result.
+         */
+        public Rule(Class<? extends Cell> source, Class<? extends Component>
+                target, Class<? extends Cell> result, int interval) {
+            Objects.requireNonNull(source, "Source must be non-null");
+            Objects.requireNonNull(target, "Target must be non-null");
+            Objects.requireNonNull(result, "Result must be non-null");
+            if (interval < 1) {
+                throw new IllegalArgumentException("Interval must be positive.");
+            }
+            if (target == result) {
+                throw new IllegalArgumentException("Target must differ from " +
+                        "result.");
+            }
+            this.source = source;
+            this.target = target;
+            this.result = result;
+            this.interval = interval;
+        }
+
+        /**
+         * @return the class of cell that spreads.
+         */
+        public Class<? extends Cell> getSource() {
+            return source;
+        }
+
+        /**
+         * @return the class of cell (or actor) that it spreads to.
+         */
+        public Class<? extends Component> getTarget() {
+            return target;
+        }
+
+        /**
+         * @return the class of cell that a target turns into.
+         */
+        public Class<? extends Cell> getResult() {
+            return result;
+        }
+
+        /**
+         * @return the number of frames between each step of this rule.
+         */
+        public int getInterval() {
+            return interval;
+        }
+    }
+}
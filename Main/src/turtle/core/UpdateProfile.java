@@ -0,0 +1,161 @@
+package turtle.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Collects how much time each class of component takes to update within a
+ * grid's frames. Components are timed in runs of consecutive components of
+ * the same class (in the order the grid updates them), rather than one by
+ * one, so profiling adds only a little overhead to each frame. The grid
+ * pauses the current run whenever it does anything else between two
+ * updates, e.g. skipping an inactive component or removing a dead actor,
+ * so that this is not counted towards the class of the run.
+ *
+ * @author agent
+ * @see Grid#setUpdateProfile(UpdateProfile)
+ */
+public final class UpdateProfile {
+    private static final double NANOS_TO_MILLIS = 1e-6;
+
+    private final LinkedHashMap<Class<?>, long[]> stats;
+    private long frames;
+
+    private Class<?> runType;
+    private long runStart;
+    private long runTime;
+    private int runCount;
+    private boolean timing;
+
+    /**
+     * Constructs an empty profile.
+     */
+    public UpdateProfile() {
+        stats = new LinkedHashMap<>();
+        frames = 0;
+        runType = null;
+    }
+
+    /**
+     * @return the number of frames profiled.
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Obtains the total time spent updating one class of components.
+     *
+     * @param type the component class.
+     * @return the total time in nanoseconds.
+     */
+    public long getTime(Class<?> type) {
+        long[] stat = stats.get(type);
+        return stat == null ? 0 : stat[0];
+    }
+
+    /**
+     * Obtains the total number of updates of one class of components.
+     *
+     * @param type the component class.
+     * @return the total number of updates.
+     */
+    public long getCount(Class<?> type) {
+        long[] stat = stats.get(type);
+        return stat == null ? 0 : stat[1];
+    }
+
+    /**
+     * @return the component classes profiled, most time-consuming first.
+     */
+    public List<Class<?>> getTypes() {
+        List<Class<?>> types = new ArrayList<>(stats.keySet());
+        types.sort(Collections.reverseOrder((a, b) -> Long.compare(getTime(a),
+                getTime(b))));
+        return types;
+    }
+
+    /**
+     * Clears all the statistics of this profile.
+     */
+    public void reset() {
+        stats.clear();
+        frames = 0;
+        runType = null;
+        runTime = 0;
+        runCount = 0;
+        timing = false;
+    }
+
+    /**
+     * @return a report with the average time and number of updates of each
+     * class per frame, most time-consuming first.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        double div = Math.max(frames, 1);
+        for (Class<?> type : getTypes()) {
+            sb.append(String.format("%s: %.4f ms/frame, %.1f updates/frame%n",
+                    type.getSimpleName(), getTime(type) * NANOS_TO_MILLIS /
+                            div, getCount(type) / div));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Marks that a component is about to be updated. This ends the current
+     * run if the component is of another class, and resumes the timing of
+     * the run if it was paused.
+     *
+     * @param comp the component.
+     */
+    void enter(Component comp) {
+        if (comp.getClass() != runType) {
+            endRun();
+            runType = comp.getClass();
+        }
+        if (!timing) {
+            runStart = System.nanoTime();
+            timing = true;
+        }
+        runCount++;
+    }
+
+    /**
+     * Pauses the timing of the current run, until the next component of
+     * the run is updated.
+     */
+    void pause() {
+        if (timing) {
+            runTime += System.nanoTime() - runStart;
+            timing = false;
+        }
+    }
+
+    /**
+     * Ends the current run, e.g. at the end of a pass.
+     */
+    void endRun() {
+        pause();
+        if (runType == null) {
+            return;
+        }
+        long[] stat = stats.computeIfAbsent(runType, t -> new long[2]);
+        stat[0] += runTime;
+        stat[1] += runCount;
+        runType = null;
+        runTime = 0;
+        runCount = 0;
+    }
+
+    /**
+     * Marks the end of a frame.
+     */
+    void endFrame() {
+        endRun();
+        frames++;
+    }
+}
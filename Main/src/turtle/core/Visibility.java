@@ -0,0 +1,195 @@
+package turtle.core;
+
+import java.util.BitSet;
+
+/**
+ * Keeps track of which locations of a grid are within the line of sight of
+ * a point of view, for fog of war. Sight is computed with recursive
+ * shadowcasting over the eight octants around the point of view, up to a
+ * radius, and is blocked by any location that is opaque.
+ * <p>
+ * This is computed incrementally: the line of sight is only cast again once
+ * the point of view moves, or once a location that was in sight changes
+ * whether if it is opaque. Locations out of sight can never change what is
+ * in sight, so changes to them are ignored.
+ *
+ * @author agent
+ * @see Grid#isOpaque(int, int)
+ */
+final class Visibility {
+    //Transforms of each octant, as (xx, xy, yx, yy).
+    private static final int[][] OCTANTS = {
+            {1, 0, 0, 1}, {0, 1, 1, 0}, {0, -1, 1, 0}, {-1, 0, 0, 1},
+            {-1, 0, 0, -1}, {0, -1, -1, 0}, {0, 1, -1, 0}, {1, 0, 0, -1}};
+
+    private final Grid grid;
+    private final int rows;
+    private final int cols;
+    private final int radius;
+    private BitSet visible;
+    private BitSet opaque;
+    private long origin;
+    private boolean dirty;
+
+    /**
+     * Constructs a new visibility map over a grid, starting out with every
+     * location in sight, until it is first updated.
+     *
+     * @param grid   the grid.
+     * @param radius the radius of sight, in cells.
+     */
+    Visibility(Grid grid, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        rows = grid.getRows();
+        cols = grid.getColumns();
+        visible = new BitSet(rows * cols);
+        visible.set(0, rows * cols);
+        opaque = new BitSet(rows * cols);
+        origin = Location.INVALID;
+        dirty = true;
+    }
+
+    /**
+     * @return the radius of sight, in cells.
+     */
+    int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Checks whether if a location is in sight.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     * @return true if in sight, false if hidden.
+     */
+    boolean isVisible(int row, int col) {
+        return visible.get(row * cols + col);
+    }
+
+    /**
+     * Notes that whether if a location is opaque might have changed. The
+     * line of sight is only cast again if this location is in sight and it
+     * actually changed.
+     *
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    void invalidate(int row, int col) {
+        int index = row * cols + col;
+        if (!dirty && visible.get(index) && opaque.get(index) !=
+                grid.isOpaque(row, col)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Brings the line of sight up to date with a point of view.
+     *
+     * @param pos the packed location of the point of view.
+     * @return the locations that came into or went out of sight, or null if
+     * the line of sight did not need to be cast again.
+     */
+    BitSet update(long pos) {
+        if (!dirty && pos == origin) {
+            return null;
+        }
+        origin = pos;
+        dirty = false;
+
+        BitSet lit = new BitSet(rows * cols);
+        opaque.clear();
+        if (Location.isValid(pos)) {
+            int row = Location.rowOf(pos);
+            int col = Location.columnOf(pos);
+            reveal(lit, row, col);
+            for (int[] oct : OCTANTS)
+                castLight(lit, row, col, 1, 1.0, 0.0, oct[0], oct[1], oct[2],
+                        oct[3]);
+        }
+
+        BitSet changed = lit;
+        changed.xor(visible);
+        visible.xor(changed);
+        return changed;
+    }
+
+    /**
+     * Casts light over one octant, row by row, from a range of slopes,
+     * recursing to cast past each blocking location.
+     *
+     * @param lit   the locations in sight so far.
+     * @param row0  the row of the point of view.
+     * @param col0  the column of the point of view.
+     * @param dist  the distance of the first row to cast.
+     * @param start the starting (higher) slope of the light.
+     * @param end   the ending (lower) slope of the light.
+     * @param xx    transform of the octant.
+     * @param xy    transform of the octant.
+     * @param yx    transform of the octant.
+     * @param yy    transform of the octant.
+     */
+    private void castLight(BitSet lit, int row0, int col0, int dist,
+                           double start, double end, int xx, int xy, int yx,
+                           int yy) {
+        if (start < end) {
+            return;
+        }
+
+        double newStart = 0;
+        for (int i = dist; i <= radius; i++) {
+            boolean blocked = false;
+            for (int dx = -i, dy = -i; dx <= 0; dx++) {
+                double leftSlope = (dx - .5) / (dy + .5);
+                double rightSlope = (dx + .5) / (dy - .5);
+                if (start < rightSlope) {
+                    continue;
+                }
+                if (end > leftSlope) {
+                    break;
+                }
+
+                int col = col0 + dx * xx + dy * xy;
+                int row = row0 + dx * yx + dy * yy;
+                boolean inside = grid.isValidLocation(row, col);
+                if (inside && dx * dx + dy * dy <= radius * radius) {
+                    reveal(lit, row, col);
+                }
+
+                boolean blocking = !inside || grid.isOpaque(row, col);
+                if (blocked) {
+                    if (blocking) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (blocking && i < radius) {
+                    blocked = true;
+                    castLight(lit, row0, col0, i + 1, start, leftSlope, xx,
+                            xy, yx, yy);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Marks a location as in sight, remembering whether if it was opaque.
+     *
+     * @param lit the locations in sight so far.
+     * @param row the row of the location.
+     * @param col the column of the location.
+     */
+    private void reveal(BitSet lit, int row, int col) {
+        int index = row * cols + col;
+        lit.set(index);
+        if (grid.isOpaque(row, col)) {
+            opaque.set(index);
+        }
+    }
+}
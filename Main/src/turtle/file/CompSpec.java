@@ -1,6 +1,8 @@
 package turtle.file;
 
+import turtle.core.Cell;
 import turtle.core.Component;
+import turtle.core.ComponentInfo;
 import turtle.core.Location;
 import turtle.core.TileSet;
 
@@ -17,7 +19,7 @@ import java.util.Map;
  */
 public class CompSpec {
     private final TileSet tileset;
-    private final Location loc;
+    private final long pos;
     private final short slot;
     private final HashMap<String, Object> params;
 
@@ -32,7 +34,7 @@ public class CompSpec {
     public CompSpec(TileSet tileset, Location loc, short slot,
                     Map<String, Object> params) {
         this.tileset = tileset;
-        this.loc = loc;
+        this.pos = loc.pack();
         this.slot = slot;
         this.params = new HashMap<>(params);
     }
@@ -47,11 +49,27 @@ public class CompSpec {
      * @param data    the serialized parameter data
      * @throws IOException if serialized parameter data is corrupted.
      */
-    @SuppressWarnings("unchecked")
     public CompSpec(TileSet tileset, Location loc, short slot, byte[] data)
             throws IOException {
+        this(tileset, loc.pack(), slot, data);
+    }
+
+    /**
+     * Creates a CompSpec initialized with the component specifications
+     * and reads from parameter data
+     *
+     * @param tileset the parent tileset associated with this comp spec.
+     * @param pos     the starting packed location of component.
+     * @param slot    the index slot specifying component type
+     * @param data    the serialized parameter data
+     * @throws IOException if serialized parameter data is corrupted.
+     * @see Location#pack(int, int)
+     */
+    @SuppressWarnings("unchecked")
+    public CompSpec(TileSet tileset, long pos, short slot, byte[] data)
+            throws IOException {
         this.tileset = tileset;
-        this.loc = loc;
+        this.pos = pos;
         this.slot = slot;
 
         if (data != null && data.length > 0) {
@@ -79,25 +97,45 @@ public class CompSpec {
      */
     public Component createComponent() {
         Class<Component> clsComp = tileset.componentAt(slot);
-        try {
-            Component c = clsComp.newInstance();
-            for (Map.Entry<String, Object> ent : params.entrySet())
-                c.setAttribute(ent.getKey(), ent.getValue());
-            c.getHeadLocation().setLocation(loc);
-            c.getTrailingLocation().setLocation(loc);
-            return c;
-        } catch (InstantiationException | IllegalAccessException e) {
-            e.printStackTrace();
-            throw new IllegalStateException("No no-arg constructor found");
-        }
+        Component c = ComponentInfo.of(clsComp).newInstance();
+        for (Map.Entry<String, Object> ent : params.entrySet())
+            c.setAttribute(ent.getKey(), ent.getValue());
+        c.getHeadLocation().setLocation(pos);
+        c.getTrailingLocation().setLocation(pos);
+        return c;
+    }
 
+    /**
+     * Obtains the shared flyweight that can stand in for the component
+     * specified, if it is a plain static cell without any parameters.
+     *
+     * @return the flyweight cell, or null if a full component is needed.
+     * @see ComponentInfo#getFlyweight()
+     */
+    public Cell getFlyweight() {
+        if (!params.isEmpty()) {
+            return null;
+        }
+        Class<Component> clsComp = tileset.componentAt(slot);
+        if (!Cell.class.isAssignableFrom(clsComp)) {
+            return null;
+        }
+        return ComponentInfo.of(clsComp).getFlyweight();
     }
 
     /**
-     * @return the location of component.
+     * @return a copy of the location of component.
      */
     public Location getLocation() {
-        return loc;
+        return new Location(Location.rowOf(pos), Location.columnOf(pos));
+    }
+
+    /**
+     * @return the packed location of component.
+     * @see Location#pack(int, int)
+     */
+    public long getPosition() {
+        return pos;
     }
 
     /**
@@ -23,6 +23,7 @@ public class Level {
     private int cols;
     private int timeLimit;
     private int foodReq;
+    private boolean terrainSpreads;
 
     private final ArrayList<CompSpec> cells = new ArrayList<>();
     private final ArrayList<CompSpec> actors = new ArrayList<>();
@@ -88,8 +89,19 @@ public class Level {
         Grid g = new Grid(rows, cols);
         g.setFoodRequirement(foodReq);
         g.setTimeLeft(timeLimit);
-        for (CompSpec spec : cells)
-            g.placeCell((Cell) spec.createComponent());
+        if (terrainSpreads) {
+            g.setTerrain(TerrainAutomaton.createDefault());
+        }
+        for (CompSpec spec : cells) {
+            Cell flyweight = spec.getFlyweight();
+            if (flyweight != null) {
+                long pos = spec.getPosition();
+                g.placeCell(flyweight, Location.rowOf(pos),
+                        Location.columnOf(pos));
+            } else {
+                g.placeCell((Cell) spec.createComponent());
+            }
+        }
         for (CompSpec spec : actors)
             g.placeActor((Actor) spec.createComponent());
         return g;
@@ -207,6 +219,31 @@ public class Level {
         this.timeLimit = timeLimit;
     }
 
+    /**
+     * @return true if the terrain of this level spreads, false if it stays
+     * as it is placed.
+     * @see TerrainAutomaton#createDefault()
+     */
+    public boolean isTerrainSpreading() {
+        return terrainSpreads;
+    }
+
+    /**
+     * Sets whether if the terrain of this level spreads, i.e. fire spreads
+     * to grass, and water floods over sand.
+     *
+     * @param terrainSpreads true to spread the terrain, false to leave it as
+     *                       it is placed.
+     * @throws IllegalStateException if level is not editable
+     * @see TerrainAutomaton#createDefault()
+     */
+    public void setTerrainSpreading(boolean terrainSpreads) {
+        if (!isEditable()) {
+            throw new IllegalStateException("Level is not editable!");
+        }
+        this.terrainSpreads = terrainSpreads;
+    }
+
     /**
      * Determines whether if this level object is editable or not.
      *
@@ -251,6 +288,8 @@ public class Level {
         name = raf.readUTF();
         foodReq = raf.readInt();
         timeLimit = raf.readInt();
+        terrainSpreads = parent.getVersion() >= LevelPack.VERSION_2 &&
+                raf.readBoolean();
     }
 
     /**
@@ -296,6 +335,7 @@ public class Level {
         raf.writeUTF(name);
         raf.writeInt(foodReq);
         raf.writeInt(timeLimit);
+        raf.writeBoolean(terrainSpreads);
 
         raf.writeInt(cells.size());
         raf.writeInt(actors.size());
@@ -317,7 +357,8 @@ public class Level {
      */
     private CompSpec readCompSpec(RandomAccessFile raf,
                                   Class<? extends Component> expectedType) throws IOException {
-        Location loc = new Location(raf.readInt(), raf.readInt());
+        int row = raf.readInt();
+        long pos = Location.pack(row, raf.readInt());
         short compID = raf.readShort();
         byte[] initData = new byte[raf.readInt()];
         raf.read(initData);
@@ -326,7 +367,7 @@ public class Level {
         if (!expectedType.isAssignableFrom(ts.componentAt(compID))) {
             throw new IOException("Unexpected component type");
         }
-        return new CompSpec(ts, loc, compID, initData);
+        return new CompSpec(ts, pos, compID, initData);
     }
 
     /**
@@ -338,9 +379,9 @@ public class Level {
      */
     private void writeCompSpec(RandomAccessFile raf, CompSpec spec) throws
             IOException {
-        Location loc = spec.getLocation();
-        raf.writeInt(loc.getRow());
-        raf.writeInt(loc.getColumn());
+        long pos = spec.getPosition();
+        raf.writeInt(Location.rowOf(pos));
+        raf.writeInt(Location.columnOf(pos));
         raf.writeShort(spec.getSlot());
 
         byte[] initData = spec.storeParameters();
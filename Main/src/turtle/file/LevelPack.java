@@ -14,11 +14,13 @@ import java.util.UUID;
  */
 public class LevelPack {
     private static final int PACK_FILE_SIG = 0x014D544C; //0x01+'MTL'
-    private static final int VERSION_1 = 1;
+    static final int VERSION_1 = 1;
+    static final int VERSION_2 = 2;
 
     private final boolean loadedMode;
     private final RandomAccessFile raf;
 
+    private final int version;
     private final long[] levelOffsets;
     private final ArrayList<Level> levels;
     private UUID levelPackID;
@@ -39,7 +41,8 @@ public class LevelPack {
             throw new IOException("Corrupted file");
         }
 
-        if (VERSION_1 != raf.readInt()) {
+        version = raf.readInt();
+        if (version != VERSION_1 && version != VERSION_2) {
             throw new IOException("Unsupported version number");
         }
 
@@ -63,6 +66,7 @@ public class LevelPack {
      */
     public LevelPack(String name) {
         this.name = name;
+        this.version = VERSION_2;
         this.levelOffsets = null;
         this.levelPackID = UUID.randomUUID();
         this.levels = new ArrayList<>();
@@ -70,6 +74,13 @@ public class LevelPack {
         this.raf = null;
     }
 
+    /**
+     * @return the version of the file format of this level pack.
+     */
+    int getVersion() {
+        return version;
+    }
+
     /**
      * @return name of level pack
      */
@@ -110,7 +121,7 @@ public class LevelPack {
             raf.setLength(0);
 
             raf.writeInt(PACK_FILE_SIG);
-            raf.writeInt(VERSION_1);
+            raf.writeInt(VERSION_2);
             raf.writeInt(levels.size());
 
             long levelOffsets = raf.getFilePointer();
@@ -0,0 +1,185 @@
+package turtle.ui;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Measures how long each game tick takes, and when ticks keep running over
+ * the frame budget, applies the steps of a degradation ladder one by one.
+ * When ticks are back under budget for a while, the steps are lifted again
+ * in reverse order. None of the steps change how the game plays out, so
+ * recordings stay valid. Each step applied or lifted is logged as one line
+ * of key=value pairs.
+ *
+ * @author agent
+ */
+public class FrameWatchdog {
+
+    /**
+     * Represents one step of degradation.
+     */
+    public enum Step {
+        /**
+         * Freezes looping animations (that are only cosmetic).
+         */
+        SKIP_ANIMATIONS,
+        /**
+         * Drops the playback of any sounds.
+         */
+        MUTE_SOUNDS,
+        /**
+         * Defers taking undo snapshots until this step is lifted.
+         */
+        DEFER_UNDO,
+        /**
+         * Updates the view and status bar less often.
+         */
+        REDUCE_RENDER
+    }
+
+    public static final long DEFAULT_BUDGET = 1000000000L / GameUI
+            .FRAMES_PER_SEC;
+
+    private static final int OVERRUNS_TO_DEGRADE = 3;
+    private static final int TICKS_TO_RECOVER = GameUI.FRAMES_PER_SEC * 3;
+    private static final double NANOS_TO_MILLIS = 1e-6;
+
+    private final long budget;
+    private final Step[] ladder;
+    private final EnumSet<Step> active;
+
+    private String context;
+    private int level;
+    private int overruns;
+    private int recovered;
+    private long tickStart;
+    private long gridStart;
+    private long gridTime;
+
+    /**
+     * Constructs a new watchdog.
+     *
+     * @param budget the budget of each tick, in nanoseconds.
+     * @param ladder the steps to apply, in order, as ticks keep overrunning.
+     * @throws IllegalArgumentException if the budget is not positive.
+     */
+    public FrameWatchdog(long budget, Step... ladder) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive.");
+        }
+        this.budget = budget;
+        this.ladder = Arrays.copyOf(ladder, ladder.length);
+        active = EnumSet.noneOf(Step.class);
+        context = "";
+        level = 0;
+    }
+
+    /**
+     * Determines whether if a step is currently applied.
+     *
+     * @param step the step to check.
+     * @return true if applied, false otherwise.
+     */
+    public boolean isActive(Step step) {
+        return active.contains(step);
+    }
+
+    /**
+     * Sets the context that is logged along with each event, e.g. the level
+     * being played.
+     *
+     * @param context the context string.
+     */
+    public void setContext(String context) {
+        this.context = context;
+    }
+
+    /**
+     * Marks the start of a game tick.
+     */
+    public void beginTick() {
+        tickStart = System.nanoTime();
+        gridTime = 0;
+    }
+
+    /**
+     * Marks the start of the grid's part of the current tick.
+     */
+    public void beginGridTick() {
+        gridStart = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the grid's part of the current tick.
+     */
+    public void endGridTick() {
+        gridTime += System.nanoTime() - gridStart;
+    }
+
+    /**
+     * Marks the end of a game tick, degrading or recovering if needed.
+     *
+     * @param frame the frame of the tick.
+     */
+    public void endTick(long frame) {
+        long tickTime = System.nanoTime() - tickStart;
+        if (tickTime > budget) {
+            recovered = 0;
+            if (++overruns >= OVERRUNS_TO_DEGRADE && level < ladder.length) {
+                overruns = 0;
+                Step step = ladder[level++];
+                apply(step, true);
+                log("degrade", step, frame, tickTime);
+            }
+        } else {
+            overruns = 0;
+            if (++recovered >= TICKS_TO_RECOVER && level > 0) {
+                recovered = 0;
+                Step step = ladder[--level];
+                apply(step, false);
+                log("recover", step, frame, tickTime);
+            }
+        }
+    }
+
+    /**
+     * Lifts every step that is applied, e.g. when a new level starts.
+     */
+    public void reset() {
+        while (level > 0)
+            apply(ladder[--level], false);
+        overruns = 0;
+        recovered = 0;
+    }
+
+    /**
+     * Applies or lifts one step. The game checks which steps are applied
+     * on each tick, through {@link #isActive(Step)}, so nothing outside of
+     * the game using this watchdog is ever degraded.
+     *
+     * @param step    the step.
+     * @param degrade true to apply the step, false to lift it.
+     */
+    private void apply(Step step, boolean degrade) {
+        if (degrade) {
+            active.add(step);
+        } else {
+            active.remove(step);
+        }
+    }
+
+    /**
+     * Logs an event of this watchdog.
+     *
+     * @param event    the kind of event.
+     * @param step     the step applied or lifted.
+     * @param frame    the frame of the tick.
+     * @param tickTime the time taken by the tick, in nanoseconds.
+     */
+    private void log(String event, Step step, long frame, long tickTime) {
+        System.err.printf("watchdog event=%s step=%s level=%d context=\"%s\" " +
+                        "frame=%d tick_ms=%.2f grid_ms=%.2f budget_ms=%.2f%n",
+                event, step, level, context, frame, tickTime * NANOS_TO_MILLIS,
+                gridTime * NANOS_TO_MILLIS, budget * NANOS_TO_MILLIS);
+    }
+}
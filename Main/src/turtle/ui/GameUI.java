@@ -43,6 +43,8 @@ public class GameUI extends VBox {
 
     private static final String SECT_BREAK = "   ";
     private static final int FPS_UPDATE_RATE = 10;
+    private static final int REDUCED_RENDER_RATE = 3;
+    private static final int FOG_RADIUS = 5;
 
     private static final int ACTION_MOVE_START = 0;
     private static final int ACTION_START = -1;
@@ -52,6 +54,9 @@ public class GameUI extends VBox {
     private static final int ACTION_PREVIOUS = -5;
     private static final int ACTION_PLAYBACK = -6;
     private static final int ACTION_UNDO = -7;
+    private static final int ACTION_FOG = -8;
+    private static final int ACTION_BATCH = -9;
+    private static final int ACTION_PROFILE = -10;
 
     private static final double SEMI_TRANS_ALPHA = .5;
     private static final Color DARK_GRAY = Color.web("#505050");
@@ -89,10 +94,14 @@ public class GameUI extends VBox {
     private final boolean[] moving;
     private final GridView view;
     private final GameTimer runner;
+    private final FrameWatchdog watchdog;
+    private UpdateProfile profile;
+    private String levelContext;
     private final EnumMap<KeyCode, Integer> mappedKeys;
     private final MainApp app;
 
     private final ArrayDeque<Move> undoStack;
+    private boolean undoDeferred;
 
     /* UI elements */
     private HBox pnlBar;
@@ -129,6 +138,11 @@ public class GameUI extends VBox {
         pnlMenuDialog = new GameMenuUI(this);
         view = new GridView(null);
         runner = new GameTimer();
+        watchdog = new FrameWatchdog(FrameWatchdog.DEFAULT_BUDGET,
+                FrameWatchdog.Step.SKIP_ANIMATIONS,
+                FrameWatchdog.Step.MUTE_SOUNDS,
+                FrameWatchdog.Step.DEFER_UNDO,
+                FrameWatchdog.Step.REDUCE_RENDER);
 
         undoStack = new ArrayDeque<>(MAX_UNDOS);
 
@@ -463,6 +477,22 @@ public class GameUI extends VBox {
                     playback = true;
                 }
                 return;
+            case ACTION_FOG:
+                view.setVisionRadius(view.getVisionRadius() == 0 ? FOG_RADIUS :
+                        0);
+                return;
+            case ACTION_BATCH:
+                view.setBatchRendering(!view.isBatchRendering());
+                return;
+            case ACTION_PROFILE:
+                if (profile == null) {
+                    profile = new UpdateProfile();
+                } else {
+                    reportProfile();
+                    profile = null;
+                }
+                view.getGrid().setUpdateProfile(profile);
+                return;
             case ACTION_UNDO:
                 if (state != STOPPED) {
                     if (pnlMenuBack.isVisible()) {
@@ -575,6 +605,18 @@ public class GameUI extends VBox {
         Grid g = lvl.createLevel();
         view.initGrid(g);
         undoStack.clear();
+        undoDeferred = false;
+
+        if (profile != null) {
+            reportProfile();
+            profile.reset();
+            g.setUpdateProfile(profile);
+        }
+        watchdog.reset();
+        view.setRenderInterval(1);
+        levelContext = currentPack.getName() + "#" + index + " " +
+                lvl.getName();
+        watchdog.setContext(levelContext);
 
         updateUI();
         return true;
@@ -654,6 +696,9 @@ public class GameUI extends VBox {
         mappedKeys.put(KeyCode.P, ACTION_PREVIOUS);
         mappedKeys.put(KeyCode.TAB, ACTION_PLAYBACK);
         mappedKeys.put(KeyCode.Z, ACTION_UNDO);
+        mappedKeys.put(KeyCode.F, ACTION_FOG);
+        mappedKeys.put(KeyCode.B, ACTION_BATCH);
+        mappedKeys.put(KeyCode.I, ACTION_PROFILE);
     }
 
     /**
@@ -784,6 +829,15 @@ public class GameUI extends VBox {
         }
     }
 
+    /**
+     * Logs the report of the update profile, i.e. how long each class of
+     * component took to update, for the level profiled so far.
+     */
+    private void reportProfile() {
+        System.err.printf("profile context=\"%s\" frames=%d%n%s",
+                levelContext, profile.getFrames(), profile);
+    }
+
     /**
      * Updates next frame of game.
      *
@@ -795,32 +849,52 @@ public class GameUI extends VBox {
         if (p == null) {
             return;
         }
+        watchdog.beginTick();
+
+        //The grid may have been replaced (e.g. by an undo), so the steps
+        //of the watchdog are applied to whichever grid is now playing.
+        Grid g = view.getGrid();
+        g.setCosmeticAnimations(!watchdog.isActive(FrameWatchdog.Step
+                .SKIP_ANIMATIONS));
+        g.setSoundsEnabled(!watchdog.isActive(FrameWatchdog.Step.MUTE_SOUNDS));
+        g.setUpdateProfile(profile);
         Direction moveDir = getMovingDirection();
         if (moveDir != null) {
             view.getGrid().movePlayer(moveDir);
         }
 
         //Update grid stuff.
+        int renderRate = watchdog.isActive(FrameWatchdog.Step.REDUCE_RENDER) ?
+                REDUCED_RENDER_RATE : 1;
+        view.setRenderInterval(renderRate);
+        watchdog.beginGridTick();
         view.updateFrame(frame);
+        watchdog.endGridTick();
         if ((frame + 1) % FRAMES_PER_SEC == 0) {
             view.getGrid().decrementTime();
         }
-        updateUI();
+        if (frame % renderRate == 0) {
+            updateUI();
+        }
         if (frame % FPS_UPDATE_RATE == 0) {
             lblFps.setText(String.format("Fps: %.3f", runner.getFps()));
         }
 
         checkPlayerStatus(p, frame);
 
-        if (frame % UNDO_RATE == 0) {
-            while (undoStack.size() >= MAX_UNDOS)
-                undoStack.removeLast();
-            try {
-                undoStack.push(new Move(view.getGrid(), frame));
-            } catch (IOException e) {
-                e.printStackTrace();
+        if (frame % UNDO_RATE == 0 || undoDeferred) {
+            undoDeferred = watchdog.isActive(FrameWatchdog.Step.DEFER_UNDO);
+            if (!undoDeferred) {
+                while (undoStack.size() >= MAX_UNDOS)
+                    undoStack.removeLast();
+                try {
+                    undoStack.push(new Move(view.getGrid(), frame));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
         }
+        watchdog.endTick(frame);
     }
 
     /**
@@ -0,0 +1,132 @@
+package turtle.world;
+
+import turtle.core.Actor;
+import turtle.core.Cell;
+import turtle.core.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds everything generated for one chunk of an endless world, as plain
+ * data, so that it can be generated on any thread. No component is created
+ * until the chunk is placed into a grid.
+ *
+ * @author agent
+ */
+final class Chunk {
+    private final int row;
+    private final int col;
+    private final Class<? extends Cell>[] cells;
+    private final ArrayList<Spawn> spawns;
+
+    /**
+     * Constructs an empty chunk.
+     *
+     * @param row  the row of the chunk in the world (in chunks).
+     * @param col  the column of the chunk in the world (in chunks).
+     * @param size the number of cells across the chunk.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Chunk(int row, int col, int size) {
+        this.row = row;
+        this.col = col;
+        cells = new Class[size * size];
+        spawns = new ArrayList<>();
+    }
+
+    /**
+     * @return the row of the chunk in the world (in chunks).
+     */
+    int getRow() {
+        return row;
+    }
+
+    /**
+     * @return the column of the chunk in the world (in chunks).
+     */
+    int getColumn() {
+        return col;
+    }
+
+    /**
+     * Obtains the class of cell generated at a location of this chunk.
+     *
+     * @param index the index of the location within this chunk.
+     * @return the class of cell, or null if there is no cell.
+     */
+    Class<? extends Cell> cellAt(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Sets the class of cell generated at a location of this chunk.
+     *
+     * @param index the index of the location within this chunk.
+     * @param type  the class of cell, or null for no cell.
+     */
+    void setCell(int index, Class<? extends Cell> type) {
+        cells[index] = type;
+    }
+
+    /**
+     * @return the actors generated in this chunk, in order of placement.
+     */
+    List<Spawn> getSpawns() {
+        return spawns;
+    }
+
+    /**
+     * Adds an actor to be placed with this chunk.
+     *
+     * @param index   the index of the location within this chunk.
+     * @param type    the class of actor.
+     * @param heading the initial heading of the actor.
+     */
+    void addSpawn(int index, Class<? extends Actor> type, Direction heading) {
+        spawns.add(new Spawn(index, type, heading));
+    }
+
+    /**
+     * Represents one actor generated in a chunk.
+     */
+    static final class Spawn {
+        private final int index;
+        private final Class<? extends Actor> type;
+        private final Direction heading;
+
+        /**
+         * Constructs a new spawn.
+         *
+         * @param index   the index of the location within the chunk.
+         * @param type    the class of actor.
+         * @param heading the initial heading of the actor.
+         */
+        Spawn(int index, Class<? extends Actor> type, Direction heading) {
+            this.index = index;
+            this.type = type;
+            this.heading = heading;
+        }
+
+        /**
+         * @return the index of the location within the chunk.
+         */
+        int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the class of actor.
+         */
+        Class<? extends Actor> getType() {
+            return type;
+        }
+
+        /**
+         * @return the initial heading of the actor.
+         */
+        Direction getHeading() {
+            return heading;
+        }
+    }
+}
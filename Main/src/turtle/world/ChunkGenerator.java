@@ -0,0 +1,146 @@
+package turtle.world;
+
+import turtle.comp.Bird;
+import turtle.comp.Food;
+import turtle.comp.Grass;
+import turtle.comp.LawnMower;
+import turtle.comp.Sand;
+import turtle.comp.Wall;
+import turtle.comp.Water;
+import turtle.core.Direction;
+import turtle.core.StatefulRandom;
+
+/**
+ * Generates the chunks of an endless world from a seed. Each chunk is
+ * generated from its own random generator, seeded from the world seed and
+ * the location of the chunk alone, so a chunk always comes out the same no
+ * matter when (or on which thread) it is generated, or in which order.
+ *
+ * @author agent
+ */
+final class ChunkGenerator {
+    static final int SIZE = 16;
+
+    private static final long ROW_MIX = 0x9E3779B97F4A7C15L;
+    private static final long COLUMN_MIX = 0xC2B2AE3D27D4EB4FL;
+
+    private static final int MAX_WALL_RUNS = 3;
+    private static final int MIN_WALL_LENGTH = 3;
+    private static final int MAX_WALL_LENGTH = 8;
+    private static final int MAX_PONDS = 2;
+    private static final int MAX_POND_RADIUS = 2;
+    private static final int START_RADIUS = 2;
+
+    //Odds (per mille) of what is spawned on each plain sand cell.
+    private static final int ODDS_TOTAL = 1000;
+    private static final int BIRD_ODDS = 1;
+    private static final int MOWER_ODDS = 10;
+    private static final int FOOD_ODDS = 30;
+    private static final int GRASS_ODDS = 120;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long seed;
+
+    /**
+     * Constructs a new generator.
+     *
+     * @param seed the seed of the world.
+     */
+    ChunkGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a chunk. This is safe to call from any thread.
+     *
+     * @param row the row of the chunk in the world (in chunks).
+     * @param col the column of the chunk in the world (in chunks).
+     * @return the generated chunk.
+     */
+    Chunk generate(int row, int col) {
+        StatefulRandom rng = new StatefulRandom(seed ^ (row * ROW_MIX) ^
+                (col * COLUMN_MIX));
+        Chunk chunk = new Chunk(row, col, SIZE);
+        for (int i = 0; i < SIZE * SIZE; i++)
+            chunk.setCell(i, Sand.class);
+
+        //Straight runs of walls.
+        int runs = rng.nextInt(MAX_WALL_RUNS + 1);
+        for (int i = 0; i < runs; i++) {
+            int r = rng.nextInt(SIZE);
+            int c = rng.nextInt(SIZE);
+            int len = MIN_WALL_LENGTH + rng.nextInt(MAX_WALL_LENGTH -
+                    MIN_WALL_LENGTH + 1);
+            boolean across = rng.nextBoolean();
+            for (int j = 0; j < len && r < SIZE && c < SIZE; j++) {
+                chunk.setCell(r * SIZE + c, Wall.class);
+                if (across) {
+                    c++;
+                } else {
+                    r++;
+                }
+            }
+        }
+
+        //Round ponds of water.
+        int ponds = rng.nextInt(MAX_PONDS + 1);
+        for (int i = 0; i < ponds; i++) {
+            int r0 = rng.nextInt(SIZE);
+            int c0 = rng.nextInt(SIZE);
+            int rad = 1 + rng.nextInt(MAX_POND_RADIUS);
+            for (int r = Math.max(0, r0 - rad); r <= Math.min(SIZE - 1, r0 +
+                    rad); r++)
+                for (int c = Math.max(0, c0 - rad); c <= Math.min(SIZE - 1,
+                        c0 + rad); c++)
+                    if ((r - r0) * (r - r0) + (c - c0) * (c - c0) <= rad * rad) {
+                        chunk.setCell(r * SIZE + c, Water.class);
+                    }
+        }
+
+        //The player starts in the middle of the first chunk, so keep it
+        //clear.
+        boolean first = row == 0 && col == 0;
+        if (first) {
+            for (int r = SIZE / 2 - START_RADIUS; r <= SIZE / 2 +
+                    START_RADIUS; r++)
+                for (int c = SIZE / 2 - START_RADIUS; c <= SIZE / 2 +
+                        START_RADIUS; c++)
+                    chunk.setCell(r * SIZE + c, Sand.class);
+        }
+
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            int roll = rng.nextInt(ODDS_TOTAL);
+            if (chunk.cellAt(i) != Sand.class || (first && isStart(i))) {
+                continue;
+            }
+
+            Direction heading = DIRECTIONS[rng.nextInt(DIRECTIONS.length)];
+            if (roll < BIRD_ODDS) {
+                chunk.addSpawn(i, Bird.class, Direction.NORTH);
+            } else if (roll < BIRD_ODDS + MOWER_ODDS) {
+                chunk.addSpawn(i, LawnMower.class, heading);
+            } else if (roll < BIRD_ODDS + MOWER_ODDS + FOOD_ODDS) {
+                chunk.addSpawn(i, Food.class, Direction.NORTH);
+            } else if (roll < BIRD_ODDS + MOWER_ODDS + FOOD_ODDS +
+                    GRASS_ODDS) {
+                chunk.addSpawn(i, Grass.class, Direction.NORTH);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Checks whether if a location of the first chunk is within the clear
+     * area that the player starts in.
+     *
+     * @param index the index of the location within the chunk.
+     * @return true if within the starting area, false otherwise.
+     */
+    private static boolean isStart(int index) {
+        int r = index / SIZE;
+        int c = index % SIZE;
+        return Math.abs(r - SIZE / 2) <= START_RADIUS && Math.abs(c - SIZE /
+                2) <= START_RADIUS;
+    }
+}
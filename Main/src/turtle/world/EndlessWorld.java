@@ -0,0 +1,441 @@
+package turtle.world;
+
+import turtle.comp.Player;
+import turtle.core.Actor;
+import turtle.core.Cell;
+import turtle.core.ComponentInfo;
+import turtle.core.Grid;
+import turtle.core.Location;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays an endless world, generated chunk by chunk around the player from a
+ * seed, instead of a fixed level.
+ * <p>
+ * The grid only ever holds a fixed window of chunks, centered on the chunk
+ * the player is in. Once the player crosses into another chunk, the whole
+ * window shifts over by one chunk: the chunks falling off the far side are
+ * evicted, and the chunks coming into view are placed on the near side. So
+ * the size of the grid (and the cost of each frame) stays the same no matter
+ * how far the player travels.
+ * <p>
+ * Chunks are generated as plain data on a background thread, one ring ahead
+ * of the window, so they are usually ready long before they are placed. An
+ * evicted chunk is summarized by which of its actors are gone and which of
+ * its cells have changed, so that it comes back as it was left. Only the most
+ * recently evicted chunks are remembered this way; older chunks simply come
+ * back as they were first generated. Actors that wander out of their own
+ * chunk are forgotten along with whichever chunk they wander into.
+ *
+ * @author agent
+ */
+public final class EndlessWorld {
+    public static final int CHUNK_SIZE = ChunkGenerator.SIZE;
+    public static final int WINDOW = 3;
+
+    private static final int PREFETCH = 1;
+    private static final int MAX_SUMMARIES = 256;
+
+    private final ChunkGenerator generator;
+    private final Grid grid;
+    private final ExecutorService executor;
+    private final HashMap<Long, Future<Chunk>> pending;
+    private final SummaryCache summaries;
+    private final Loaded[][] window;
+    private int originRow;
+    private int originCol;
+
+    /**
+     * Constructs a new endless world, placing the player in the middle of
+     * the first chunk.
+     *
+     * @param seed the seed to generate the world from.
+     */
+    public EndlessWorld(long seed) {
+        generator = new ChunkGenerator(seed);
+        grid = new Grid(WINDOW * CHUNK_SIZE, WINDOW * CHUNK_SIZE);
+        grid.setRNGSeed(seed);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Chunk generator");
+            t.setDaemon(true);
+            return t;
+        });
+        pending = new HashMap<>();
+        summaries = new SummaryCache();
+
+        window = new Loaded[WINDOW][WINDOW];
+        originRow = -(WINDOW / 2);
+        originCol = -(WINDOW / 2);
+        for (int wr = 0; wr < WINDOW; wr++)
+            for (int wc = 0; wc < WINDOW; wc++)
+                window[wr][wc] = place(take(originRow + wr, originCol + wc),
+                        wr, wc);
+
+        Player p = new Player();
+        int center = (WINDOW / 2) * CHUNK_SIZE + CHUNK_SIZE / 2;
+        p.getHeadLocation().setLocation(center, center);
+        p.getTrailingLocation().setLocation(center, center);
+        grid.placeActor(p);
+        prefetch();
+    }
+
+    /**
+     * @return the grid that this world is played on.
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return the row of the chunk the player is in (in chunks).
+     */
+    public int getChunkRow() {
+        return originRow + WINDOW / 2;
+    }
+
+    /**
+     * @return the column of the chunk the player is in (in chunks).
+     */
+    public int getChunkColumn() {
+        return originCol + WINDOW / 2;
+    }
+
+    /**
+     * Streams in the chunks around the player if the player has crossed into
+     * another chunk. This must be called before each frame of the grid, i.e.
+     * before {@link Grid#updateFrame(long)}, since the grid cannot be shifted
+     * while a frame is being updated.
+     */
+    public void streamChunks() {
+        Player p = grid.getPlayer();
+        if (p == null) {
+            return;
+        }
+        long pos = p.getHeadPosition();
+        int dr = Math.floorDiv(Location.rowOf(pos), CHUNK_SIZE) - WINDOW / 2;
+        int dc = Math.floorDiv(Location.columnOf(pos), CHUNK_SIZE) - WINDOW /
+                2;
+        if (dr != 0 || dc != 0) {
+            recenter(Integer.signum(dr), Integer.signum(dc));
+        }
+    }
+
+    /**
+     * Stops generating chunks in the background. The grid can still be
+     * played, but chunks will then be generated as they are needed.
+     */
+    public void close() {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    /**
+     * Shifts the window over by one chunk in either direction (or both),
+     * evicting the chunks that fall off and placing the chunks that come
+     * into view.
+     *
+     * @param dr the number of chunks to shift the window down by.
+     * @param dc the number of chunks to shift the window right by.
+     */
+    private void recenter(int dr, int dc) {
+        for (int wr = 0; wr < WINDOW; wr++)
+            for (int wc = 0; wc < WINDOW; wc++)
+                if (!inWindow(wr - dr, wc - dc)) {
+                    summarize(window[wr][wc], wr, wc);
+                }
+
+        grid.shiftWorld(-dr * CHUNK_SIZE, -dc * CHUNK_SIZE);
+        originRow += dr;
+        originCol += dc;
+
+        Loaded[][] shifted = new Loaded[WINDOW][WINDOW];
+        for (int wr = 0; wr < WINDOW; wr++)
+            for (int wc = 0; wc < WINDOW; wc++)
+                if (inWindow(wr + dr, wc + dc)) {
+                    shifted[wr][wc] = window[wr + dr][wc + dc];
+                    shifted[wr][wc].shift(-dr * CHUNK_SIZE, -dc * CHUNK_SIZE);
+                } else {
+                    shifted[wr][wc] = place(take(originRow + wr, originCol +
+                            wc), wr, wc);
+                }
+        for (int wr = 0; wr < WINDOW; wr++)
+            System.arraycopy(shifted[wr], 0, window[wr], 0, WINDOW);
+        prefetch();
+    }
+
+    /**
+     * Starts generating the chunks in a ring around the window, and stops
+     * generating any chunk that is now too far away to be needed.
+     */
+    private void prefetch() {
+        if (executor.isShutdown()) {
+            return;
+        }
+
+        Iterator<Map.Entry<Long, Future<Chunk>>> itr = pending.entrySet()
+                .iterator();
+        while (itr.hasNext()) {
+            Map.Entry<Long, Future<Chunk>> entry = itr.next();
+            int row = (int) (entry.getKey() >> 32);
+            int col = (int) (long) entry.getKey();
+            if (!inReach(row, col)) {
+                entry.getValue().cancel(true);
+                itr.remove();
+            }
+        }
+
+        for (int row = originRow - PREFETCH; row < originRow + WINDOW +
+                PREFETCH; row++)
+            for (int col = originCol - PREFETCH; col < originCol + WINDOW +
+                    PREFETCH; col++) {
+                long key = keyOf(row, col);
+                if (inWindow(row - originRow, col - originCol) || pending
+                        .containsKey(key)) {
+                    continue;
+                }
+
+                int r = row;
+                int c = col;
+                pending.put(key, executor.submit(() -> generator.generate(r,
+                        c)));
+            }
+    }
+
+    /**
+     * Obtains a chunk, waiting for it if it is still being generated in the
+     * background, or generating it right away if it was never requested.
+     *
+     * @param row the row of the chunk (in chunks).
+     * @param col the column of the chunk (in chunks).
+     * @return the chunk.
+     */
+    private Chunk take(int row, int col) {
+        Future<Chunk> future = pending.remove(keyOf(row, col));
+        if (future != null && !future.isCancelled()) {
+            try {
+                return future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+        return generator.generate(row, col);
+    }
+
+    /**
+     * Places a chunk into the grid at a place in the window, as it was last
+     * left if it has been summarized.
+     *
+     * @param chunk the chunk to place.
+     * @param wr    the row of the window to place it in.
+     * @param wc    the column of the window to place it in.
+     * @return the loaded chunk.
+     */
+    private Loaded place(Chunk chunk, int wr, int wc) {
+        Summary summary = summaries.remove(keyOf(chunk.getRow(), chunk
+                .getColumn()));
+        int row0 = wr * CHUNK_SIZE;
+        int col0 = wc * CHUNK_SIZE;
+
+        for (int i = 0; i < CHUNK_SIZE * CHUNK_SIZE; i++) {
+            Class<? extends Cell> type = chunk.cellAt(i);
+            if (summary != null && summary.cells.containsKey(i)) {
+                type = summary.cells.get(i);
+            }
+            if (type == null) {
+                continue;
+            }
+
+            int r = row0 + i / CHUNK_SIZE;
+            int c = col0 + i % CHUNK_SIZE;
+            ComponentInfo<? extends Cell> info = ComponentInfo.of(type);
+            Cell cell = info.getFlyweight();
+            if (cell != null) {
+                grid.placeCell(cell, r, c);
+            } else {
+                cell = info.newInstance();
+                cell.getHeadLocation().setLocation(r, c);
+                grid.placeCell(cell);
+            }
+        }
+
+        List<Chunk.Spawn> spawns = chunk.getSpawns();
+        Actor[] actors = new Actor[spawns.size()];
+        for (int i = 0; i < actors.length; i++) {
+            if (summary != null && summary.gone.get(i)) {
+                continue;
+            }
+
+            Chunk.Spawn spawn = spawns.get(i);
+            Actor a = ComponentInfo.of(spawn.getType()).newInstance();
+            a.setHeading(spawn.getHeading());
+            int r = row0 + spawn.getIndex() / CHUNK_SIZE;
+            int c = col0 + spawn.getIndex() % CHUNK_SIZE;
+            a.getHeadLocation().setLocation(r, c);
+            a.getTrailingLocation().setLocation(r, c);
+            if (grid.placeActor(a)) {
+                actors[i] = a;
+            }
+        }
+        return new Loaded(chunk, actors, row0, col0);
+    }
+
+    /**
+     * Summarizes a chunk that is about to be evicted, if anything in it has
+     * changed since it was placed.
+     *
+     * @param loaded the loaded chunk.
+     * @param wr     the row of the window it is in.
+     * @param wc     the column of the window it is in.
+     */
+    private void summarize(Loaded loaded, int wr, int wc) {
+        Chunk chunk = loaded.chunk;
+        Summary summary = new Summary();
+        for (int i = 0; i < loaded.actors.length; i++) {
+            Actor a = loaded.actors[i];
+            if (a == null || a.getParentGrid() != grid || !loaded.contains(a
+                    .getHeadPosition())) {
+                summary.gone.set(i);
+            }
+        }
+
+        int row0 = wr * CHUNK_SIZE;
+        int col0 = wc * CHUNK_SIZE;
+        for (int i = 0; i < CHUNK_SIZE * CHUNK_SIZE; i++) {
+            Cell cell = grid.getCellAt(row0 + i / CHUNK_SIZE, col0 + i %
+                    CHUNK_SIZE);
+            Class<? extends Cell> type = cell == null ? null : cell.getClass();
+            if (type != chunk.cellAt(i)) {
+                summary.cells.put(i, type);
+            }
+        }
+
+        if (!summary.gone.isEmpty() || !summary.cells.isEmpty()) {
+            summaries.put(keyOf(chunk.getRow(), chunk.getColumn()), summary);
+        }
+    }
+
+    /**
+     * Checks whether if a place is within the window.
+     *
+     * @param wr the row of the window (in chunks).
+     * @param wc the column of the window (in chunks).
+     * @return true if within the window, false otherwise.
+     */
+    private static boolean inWindow(int wr, int wc) {
+        return wr >= 0 && wr < WINDOW && wc >= 0 && wc < WINDOW;
+    }
+
+    /**
+     * Checks whether if a chunk is close enough to the window to be worth
+     * generating ahead of time.
+     *
+     * @param row the row of the chunk (in chunks).
+     * @param col the column of the chunk (in chunks).
+     * @return true if within reach, false otherwise.
+     */
+    private boolean inReach(int row, int col) {
+        return row >= originRow - PREFETCH && row < originRow + WINDOW +
+                PREFETCH && col >= originCol - PREFETCH && col < originCol +
+                WINDOW + PREFETCH;
+    }
+
+    /**
+     * Packs the location of a chunk into a single key.
+     *
+     * @param row the row of the chunk (in chunks).
+     * @param col the column of the chunk (in chunks).
+     * @return the key.
+     */
+    private static long keyOf(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Represents a chunk that is currently placed in the grid.
+     */
+    private static final class Loaded {
+        private final Chunk chunk;
+        private final Actor[] actors;
+        private int row0;
+        private int col0;
+
+        /**
+         * Constructs a new loaded chunk.
+         *
+         * @param chunk  the chunk.
+         * @param actors the actor placed for each spawn of the chunk, or
+         *               null where none was placed.
+         * @param row0   the first row of the grid the chunk is at.
+         * @param col0   the first column of the grid the chunk is at.
+         */
+        Loaded(Chunk chunk, Actor[] actors, int row0, int col0) {
+            this.chunk = chunk;
+            this.actors = actors;
+            this.row0 = row0;
+            this.col0 = col0;
+        }
+
+        /**
+         * Notes that the grid was shifted under this chunk.
+         *
+         * @param dRows the number of rows shifted by.
+         * @param dCols the number of columns shifted by.
+         */
+        void shift(int dRows, int dCols) {
+            row0 += dRows;
+            col0 += dCols;
+        }
+
+        /**
+         * Checks whether if a location of the grid is within this chunk.
+         *
+         * @param pos the packed location.
+         * @return true if within this chunk, false otherwise.
+         */
+        boolean contains(long pos) {
+            int r = Location.rowOf(pos) - row0;
+            int c = Location.columnOf(pos) - col0;
+            return r >= 0 && r < CHUNK_SIZE && c >= 0 && c < CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * Remembers what has changed in a chunk since it was generated.
+     */
+    private static final class Summary {
+        private final BitSet gone = new BitSet();
+        private final HashMap<Integer, Class<? extends Cell>> cells = new
+                HashMap<>();
+    }
+
+    /**
+     * Keeps the summaries of the chunks that were unloaded, dropping the
+     * least recently used ones once there are too many. This is never
+     * serialized, as the world itself is not.
+     */
+    @SuppressWarnings("serial")
+    private static final class SummaryCache extends LinkedHashMap<Long,
+            Summary> {
+        /**
+         * Constructs an empty cache, in access order.
+         */
+        SummaryCache() {
+            super(16, .75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Summary> eldest) {
+            return size() > MAX_SUMMARIES;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package turtle.core;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import turtle.comp.Player;
+import turtle.file.Level;
+import turtle.file.LevelPack;
+import turtle.file.LevelPackSaveData;
+import turtle.file.LevelSaveData;
+import turtle.ui.GameUI;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs every level of a level pack under the reference engine and under
+ * alternative engines side by side, frame by frame, and reports the first
+ * frame at which the full state of the grids differ. Levels are played with
+ * random input, with no input at all, and with the saved solution (if any).
+ * Nothing is shown,
+ * so this can be run headlessly, i.e. with
+ * <code>-Dglass.platform=Monocle -Dmonocle.platform=Headless</code>.
+ * <p>
+ * Usage: <code>EngineDiffTester [level-pack] [engine...]</code>, where the
+ * engines default to all the engines that should be exact.
+ *
+ * @author agent
+ */
+public class EngineDiffTester extends Application {
+    private static final String DEFAULT_PACK = "Classic.mtp";
+    private static final int MAX_FRAMES = 3000;
+    private static final int RANDOM_SEED = 12345;
+    private static final int CONTEXT_LINES = 2;
+    private static final int RECENT_MOVES = 5;
+    private static final int LOD_RADIUS = 1;
+    private static final int LOD_INTERVAL = 4;
+
+    /**
+     * Represents the input given to the player.
+     */
+    private enum Input {
+        RANDOM, IDLE, SOLUTION
+    }
+
+    /**
+     * Represents an engine to compare with the reference engine.
+     */
+    private enum Engine {
+        /**
+         * Runs on a fork of the reference grid.
+         */
+        FORKED(true),
+        /**
+         * Runs on a deep copy of the reference grid.
+         */
+        COPIED(true),
+        /**
+         * Fast-forwards through every stretch without input, skipping
+         * whole cycles of the grid's state.
+         */
+        FAST_FORWARD(true),
+        /**
+         * Runs with a level-of-detail profile, which need not be exact.
+         */
+        LEVEL_OF_DETAIL(false);
+
+        private final boolean exact;
+
+        /**
+         * Constructs an engine.
+         *
+         * @param exact true if this engine must match the reference exactly.
+         */
+        Engine(boolean exact) {
+            this.exact = exact;
+        }
+
+        /**
+         * Creates the grid of this engine from the grid of the reference
+         * engine, before any frame. The grid is always copied rather than
+         * created from the level again, since some components pick their
+         * (cosmetic) animations at random when they are created.
+         *
+         * @param ref the grid of the reference engine.
+         * @return the new grid.
+         * @throws IOException if the grid cannot be copied.
+         */
+        Grid create(Grid ref) throws IOException {
+            if (this == FORKED) {
+                return ref.fork();
+            }
+            return ref.deepCopy();
+        }
+
+        /**
+         * Configures the grid of this engine once its input is set up.
+         *
+         * @param g the grid of this engine.
+         */
+        void configure(Grid g) {
+            if (this == LEVEL_OF_DETAIL) {
+                g.setEngineProfile(EngineProfile.levelOfDetail(LOD_RADIUS,
+                        LOD_INTERVAL));
+            }
+        }
+    }
+
+    private int runs;
+    private int divergences;
+
+    @SuppressWarnings("javadoc")
+    public static void main(String[] args) {
+        Application.launch(args);
+    }
+
+    /**
+     * Runs all the comparisons, then exits.
+     *
+     * @param primaryStage the primary stage (unused).
+     */
+    @Override
+    public void start(Stage primaryStage) {
+        List<String> args = getParameters().getRaw();
+        String packFile = args.isEmpty() ? DEFAULT_PACK : args.get(0);
+        ArrayList<Engine> engines = new ArrayList<>();
+        for (int i = 1; i < args.size(); i++)
+            engines.add(Engine.valueOf(args.get(i)));
+        if (engines.isEmpty()) {
+            for (Engine e : Engine.values())
+                if (e.exact) {
+                    engines.add(e);
+                }
+        }
+
+        try {
+            LevelPack pack = new LevelPack(new File(packFile));
+            LevelPackSaveData saves = new LevelPackSaveData(pack);
+            try {
+                for (int i = 0; i < pack.getLevelCount(); i++) {
+                    pack.loadLevel(i);
+                    Level lvl = pack.getLevel(i);
+                    Recording solution = solutionOf(saves.getLevel(i));
+                    for (Engine e : engines) {
+                        compare(i, lvl, e, Input.RANDOM, null);
+                        compare(i, lvl, e, Input.IDLE, null);
+                        if (solution != null) {
+                            compare(i, lvl, e, Input.SOLUTION, solution);
+                        }
+                    }
+                }
+            } finally {
+                saves.forceClose();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        System.out.printf("%d runs, %d diverged.%n", runs, divergences);
+        Platform.exit();
+    }
+
+    /**
+     * Obtains the saved solution of a level.
+     *
+     * @param save the save data of the level.
+     * @return the solution, or null if there is no valid solution.
+     */
+    private static Recording solutionOf(LevelSaveData save) {
+        if (!save.isCompleted() || save.isSolutionInvalid()) {
+            return null;
+        }
+        try {
+            Recording rec = save.createRecording();
+            return rec.isLoaded() ? rec : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Plays a level under the reference engine and another engine, frame by
+     * frame, just as the game does, and reports the first divergence. Under
+     * the fast-forward engine, the reference engine catches up after each
+     * stretch without input before they are compared.
+     *
+     * @param num      the level index.
+     * @param lvl      the level.
+     * @param engine   the engine to compare with.
+     * @param mode     the kind of input to give.
+     * @param solution the solution to play back, if the input is the
+     *                 solution.
+     * @throws IOException if the grid cannot be copied.
+     */
+    private void compare(int num, Level lvl, Engine engine, Input mode,
+                         Recording solution) throws IOException {
+        Grid ref = lvl.createLevel();
+        Grid alt = engine.create(ref);
+
+        Direction[] inputs = new Direction[MAX_FRAMES];
+        long lastFrame = MAX_FRAMES;
+        if (mode == Input.SOLUTION) {
+            for (Grid g : new Grid[]{ref, alt}) {
+                g.getRecording().loadRecording(solution);
+                g.getRecording().startPlayback(g);
+            }
+            lastFrame = Math.min(lastFrame, solution.getRecordingFrames() +
+                    Actor.BIG_FRAME);
+        } else {
+            ref.setRNGSeed(RANDOM_SEED + num);
+            alt.setRNGSeed(RANDOM_SEED + num);
+        }
+        if (mode == Input.RANDOM) {
+            Random rng = new Random(RANDOM_SEED + num);
+            Direction[] dirs = Direction.values();
+            for (int i = 0; i < inputs.length; i++)
+                if (rng.nextInt(4) != 0) {
+                    inputs[i] = dirs[rng.nextInt(dirs.length)];
+                }
+        }
+        engine.configure(alt);
+        FastForward ff = engine == Engine.FAST_FORWARD ? new FastForward(alt,
+                GameUI.FRAMES_PER_SEC) : null;
+
+        String name = String.format("L%02d %-24.24s %-15s %-8s", num,
+                lvl.getName(), engine, mode);
+        runs++;
+
+        long frame = 0;
+        while (frame < lastFrame && !isOver(ref)) {
+            long next = frame + 1;
+            if (ff != null && inputs[(int) frame] == null) {
+                while (next < lastFrame && inputs[(int) next] == null)
+                    next++;
+                next = ff.advance(frame, next);
+                for (long f = frame; f < next; f++)
+                    step(ref, f, null);
+            } else {
+                step(ref, frame, inputs[(int) frame]);
+                step(alt, frame, inputs[(int) frame]);
+            }
+            frame = next;
+
+            String diff = GridState.capture(ref, frame - 1)
+                    .describeDifference(GridState.capture(alt, frame - 1),
+                            CONTEXT_LINES);
+            if (diff != null) {
+                divergences++;
+                System.out.printf("%s DIVERGED at frame %d%s%n", name,
+                        frame - 1, engine.exact ? "" : " (not exact)");
+                if (mode == Input.RANDOM) {
+                    System.out.println("  recent moves: " + recentMoves(inputs,
+                            frame));
+                }
+                System.out.print(diff);
+                return;
+            }
+        }
+        System.out.printf("%s ok (%d frames%s)%n", name, frame, ff == null ?
+                "" : ", " + ff.getSkippedFrames() + " skipped");
+    }
+
+    /**
+     * Updates one frame of a grid, just as the game does.
+     *
+     * @param g     the grid to update.
+     * @param frame the frame to update.
+     * @param move  the move of the player in this frame, or null if none.
+     */
+    private static void step(Grid g, long frame, Direction move) {
+        if (move != null) {
+            g.movePlayer(move);
+        }
+        g.updateFrame(frame);
+        if ((frame + 1) % GameUI.FRAMES_PER_SEC == 0) {
+            g.decrementTime();
+        }
+    }
+
+    /**
+     * Checks whether if the game on a grid is over.
+     *
+     * @param g the grid to check.
+     * @return true if the player has won or died, or the time is up.
+     */
+    private static boolean isOver(Grid g) {
+        Player p = g.getPlayer();
+        return p == null || p.isWinner() || p.isDead() || g.getTimeLeft() == 0;
+    }
+
+    /**
+     * Lists the last few moves given before a frame.
+     *
+     * @param inputs the moves given in each frame.
+     * @param frame  the frame to list the moves before (exclusive).
+     * @return the list of moves, as frame:direction.
+     */
+    private static List<String> recentMoves(Direction[] inputs, long frame) {
+        ArrayDeque<String> moves = new ArrayDeque<>();
+        for (int f = (int) frame - 1; f >= 0 && moves.size() < RECENT_MOVES;
+             f--)
+            if (inputs[f] != null) {
+                moves.addFirst(f + ":" + inputs[f]);
+            }
+        return new ArrayList<>(moves);
+    }
+}
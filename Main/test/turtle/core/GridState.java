@@ -0,0 +1,295 @@
+package turtle.core;
+
+import turtle.attributes.AttributeSet;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a snapshot of the full state of a grid at one frame, as one
+ * line of text for the grid itself and one line for each placed component.
+ * Components are described by all of their serialized fields, so two
+ * snapshots are equal only if the grids play out the same from then on. The
+ * only fields left out are those of the animations of components, since
+ * some components shuffle their animations at random, purely for looks.
+ * Placed components are named by their handles, which stay the same in
+ * copies and forks of a grid, and each handle is checked to resolve back to
+ * its component in the grid.
+ *
+ * @author agent
+ */
+public final class GridState {
+    private static final int MAX_DEPTH = 3;
+    private static final HashMap<Class<?>, List<Field>> FIELDS =
+            new HashMap<>();
+    private static final HashSet<String> ANIMATION_FIELDS = new HashSet<>(
+            Arrays.asList("currentImage", "animationOffset", "imageFrames",
+                    "changeRate", "animationCycle"));
+
+    private final long frame;
+    private final List<String> lines;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param frame the frame of the snapshot.
+     * @param lines the lines describing the grid.
+     */
+    private GridState(long frame, List<String> lines) {
+        this.frame = frame;
+        this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Takes a snapshot of a grid.
+     *
+     * @param g     the grid to take a snapshot of.
+     * @param frame the frame that has just been updated.
+     * @return the snapshot.
+     */
+    public static GridState capture(Grid g, long frame) {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("grid rng=" + g.getRNG().getState() + " food=" +
+                g.getFoodRequirement() + " time=" + g.getTimeLeft() +
+                " player=" + describe(g.getPlayer(), 0));
+
+        for (int r = 0; r < g.getRows(); r++)
+            for (int c = 0; c < g.getColumns(); c++) {
+                Cell cell = g.getCellAt(r, c);
+                if (cell != null) {
+                    //Flyweight cells carry no state of their own.
+                    lines.add(r + "," + c + " " + (cell.getParentGrid() ==
+                            null ? cell.getClass().getSimpleName() :
+                            refer(cell) + " " + describe(cell, 0)));
+                }
+                for (Actor a : g.getResidents(null, r, c))
+                    lines.add(r + "," + c + " " + refer(a) + " " + describe(a,
+                            0));
+            }
+        return new GridState(frame, lines);
+    }
+
+    /**
+     * @return the frame of this snapshot.
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return the lines describing the grid.
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Describes where this snapshot first differs from another.
+     *
+     * @param other   the other snapshot.
+     * @param context the number of lines to show around the first difference.
+     * @return a report of the first difference, or null if there is none.
+     */
+    public String describeDifference(GridState other, int context) {
+        int len = Math.min(lines.size(), other.lines.size());
+        int first = 0;
+        while (first < len && lines.get(first).equals(other.lines.get(first)))
+            first++;
+        if (first == len && lines.size() == other.lines.size()) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int from = Math.max(first - context, 0);
+        sb.append(String.format("first difference at line %d:%n", first));
+        appendLines(sb, "A", from, first + context + 1);
+        other.appendLines(sb, "B", from, first + context + 1);
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        GridState other = (GridState) obj;
+        return frame == other.frame && lines.equals(other.lines);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (int) (frame ^ (frame >>> 32));
+        result = prime * result + lines.hashCode();
+        return result;
+    }
+
+    /**
+     * Appends a range of lines (clipped to this snapshot) to a report.
+     *
+     * @param sb     the report to append to.
+     * @param prefix the prefix of each line.
+     * @param from   the first line, inclusive.
+     * @param to     the last line, exclusive.
+     */
+    private void appendLines(StringBuilder sb, String prefix, int from,
+                             int to) {
+        for (int i = from; i < Math.min(to, lines.size()); i++)
+            sb.append(String.format("  %s %4d: %s%n", prefix, i, lines.get(i)));
+    }
+
+    /**
+     * Describes a value held by a component.
+     *
+     * @param val   the value to describe.
+     * @param depth the depth of nesting of the value.
+     * @return the description.
+     */
+    private static String describe(Object val, int depth) {
+        if (val == null) {
+            return "null";
+        }
+        if (val instanceof Grid) {
+            return "grid";
+        }
+        if (val instanceof Component && depth > 0 &&
+                ((Component) val).getParentGrid() != null) {
+            //Placed components have their own lines, so only refer to them.
+            return refer((Component) val);
+        }
+        if (val instanceof Collection) {
+            ArrayList<String> items = new ArrayList<>();
+            for (Object item : (Collection<?>) val)
+                items.add(describe(item, depth + 1));
+            return items.toString();
+        }
+        if (val instanceof Map) {
+            ArrayList<String> items = new ArrayList<>();
+            for (Map.Entry<?, ?> ent : ((Map<?, ?>) val).entrySet())
+                items.add(describe(ent.getKey(), depth + 1) + "=" +
+                        describe(ent.getValue(), depth + 1));
+            return items.toString();
+        }
+        if (val.getClass().isArray()) {
+            ArrayList<String> items = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(val); i++)
+                items.add(describe(Array.get(val, i), depth + 1));
+            return items.toString();
+        }
+
+        List<Field> fields = fieldsOf(val.getClass());
+        if (fields.isEmpty()) {
+            return val.toString();
+        }
+        if (depth >= MAX_DEPTH) {
+            return val.getClass().getSimpleName();
+        }
+
+        StringBuilder sb = new StringBuilder(val.getClass().getSimpleName());
+        sb.append('{');
+        for (int i = 0; i < fields.size(); i++) {
+            Field fld = fields.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(fld.getName()).append('=');
+            try {
+                sb.append(describe(fld.get(val), depth + 1));
+            } catch (IllegalAccessException e) {
+                sb.append('?');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Refers to a placed component by its handle.
+     *
+     * @param comp the component.
+     * @return the class of the component, and the index and generation of
+     * its handle.
+     * @throws IllegalStateException if the handle does not resolve to the
+     *                               component in its grid.
+     */
+    private static String refer(Component comp) {
+        long handle = comp.getHandle();
+        if (comp.getParentGrid().lookup(handle) != comp) {
+            throw new IllegalStateException("Handle of " + comp + " at " +
+                    comp.getHeadLocation() + " does not resolve");
+        }
+        return comp.getClass().getSimpleName() + "#" + EntityTable.indexOf(
+                handle) + "." + EntityTable.generationOf(handle);
+    }
+
+    /**
+     * Obtains the fields that make up the state of a class of the game, i.e.
+     * all its serialized fields, including inherited ones. Classes that are
+     * not part of the game (or that override toString) have no such fields,
+     * and are described by toString instead.
+     *
+     * @param type the class.
+     * @return the list of fields.
+     */
+    private static List<Field> fieldsOf(Class<?> type) {
+        List<Field> fields = FIELDS.get(type);
+        if (fields != null) {
+            return fields;
+        }
+
+        fields = new ArrayList<>();
+        if (isGameClass(type) && !overridesToString(type)) {
+            for (Class<?> t = type; isGameClass(t); t = t.getSuperclass())
+                for (Field fld : t.getDeclaredFields()) {
+                    int mod = fld.getModifiers();
+                    if (Modifier.isStatic(mod) || Modifier.isTransient(mod) ||
+                            fld.getType() == AttributeSet.class ||
+                            (t == Component.class && ANIMATION_FIELDS
+                                    .contains(fld.getName()))) {
+                        continue;
+                    }
+                    fld.setAccessible(true);
+                    fields.add(fld);
+                }
+        }
+        FIELDS.put(type, fields);
+        return fields;
+    }
+
+    /**
+     * @param type a class.
+     * @return true if the class is one of the game's own classes.
+     */
+    private static boolean isGameClass(Class<?> type) {
+        return type != null && type.getName().startsWith("turtle.") &&
+                !type.isEnum();
+    }
+
+    /**
+     * @param type a class.
+     * @return true if the class (or a superclass) overrides toString.
+     */
+    private static boolean overridesToString(Class<?> type) {
+        try {
+            Class<?> decl = type.getMethod("toString").getDeclaringClass();
+            return isGameClass(decl);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
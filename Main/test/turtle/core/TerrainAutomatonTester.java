@@ -0,0 +1,334 @@
+package turtle.core;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+import turtle.comp.Fire;
+import turtle.comp.Grass;
+import turtle.comp.Sand;
+import turtle.comp.Wall;
+import turtle.comp.Water;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs grids with the default terrain rules, and checks the terrain after
+ * every frame against a naive reference that looks at every location and
+ * its neighbours one by one. The grids are sized so that the spreading
+ * crosses the edges of the words of the bit layers (and the edges of the
+ * rows), and the largest one is stepped in parallel. Bystanders are left
+ * on some of the grass, to check that whatever is left when the grass burns
+ * (or when the sand under it floods) also passes the new cell. Nothing is shown, so this can be run headlessly, i.e. with
+ * <code>-Dglass.platform=Monocle -Dmonocle.platform=Headless</code>.
+ * <p>
+ * Usage: <code>TerrainAutomatonTester [frames]</code>
+ *
+ * @author agent
+ */
+public class TerrainAutomatonTester extends Application {
+    private static final int DEFAULT_FRAMES = 600;
+    private static final int RANDOM_SEED = 12345;
+    private static final int[][] SIZES = {{1, 200}, {5, 64}, {7, 130},
+            {130, 129}};
+
+    private static final int SAND = 0;
+    private static final int WATER = 1;
+    private static final int FIRE = 2;
+    private static final int WALL = 3;
+    private static final char[] SYMBOLS = {'.', '~', '*', '#'};
+
+    private int runs;
+    private int divergences;
+
+    @SuppressWarnings("javadoc")
+    public static void main(String[] args) {
+        Application.launch(args);
+    }
+
+    /**
+     * Runs all the checks, then exits.
+     *
+     * @param primaryStage the primary stage (unused).
+     */
+    @Override
+    public void start(Stage primaryStage) {
+        List<String> args = getParameters().getRaw();
+        int frames = args.isEmpty() ? DEFAULT_FRAMES : Integer.parseInt(args
+                .get(0));
+
+        for (int i = 0; i < SIZES.length; i++)
+            check(SIZES[i][0], SIZES[i][1], frames, RANDOM_SEED + i);
+
+        System.out.printf("%d runs, %d diverged.%n", runs, divergences);
+        Platform.exit();
+    }
+
+    /**
+     * Runs one grid with the default terrain, and compares it with the
+     * reference after every frame.
+     *
+     * @param rows   the number of rows.
+     * @param cols   the number of columns.
+     * @param frames the number of frames to run for.
+     * @param seed   the seed of the random layout.
+     */
+    private void check(int rows, int cols, int frames, long seed) {
+        Random rng = new Random(seed);
+        int[][] cells = new int[rows][cols];
+        boolean[][] grass = new boolean[rows][cols];
+        int[][] replaced = new int[rows][cols];
+        Bystander[][] bystanders = new Bystander[rows][cols];
+
+        Grid g = new Grid(rows, cols);
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++) {
+                int roll = rng.nextInt(100);
+                int type = roll < 2 ? FIRE : roll < 3 ? WATER : roll < 8 ?
+                        WALL : SAND;
+                cells[r][c] = type;
+                replaced[r][c] = -1;
+                place(g, type, r, c);
+                if (type == SAND && rng.nextInt(3) != 0) {
+                    grass[r][c] = true;
+                    placeActor(g, new Grass(), r, c);
+                    if (rng.nextInt(10) == 0) {
+                        bystanders[r][c] = new Bystander();
+                        placeActor(g, bystanders[r][c], r, c);
+                    }
+                }
+            }
+        g.setTerrain(TerrainAutomaton.createDefault());
+
+        String name = String.format("%3dx%-3d", rows, cols);
+        runs++;
+        List<TerrainAutomaton.Rule> rules = g.getTerrain().getRules();
+        for (long frame = 0; frame < frames; frame++) {
+            step(rules, cells, grass, replaced, frame);
+            g.updateFrame(frame);
+
+            String diff = describeDifference(g, cells, grass, replaced,
+                    bystanders);
+            if (diff != null) {
+                divergences++;
+                System.out.printf("%s DIVERGED at frame %d%n%s", name, frame,
+                        diff);
+                return;
+            }
+        }
+        System.out.printf("%s ok (%d frames, %d burning, %d flooded)%n", name,
+                frames, count(cells, FIRE), count(cells, WATER));
+    }
+
+    /**
+     * Steps the reference by one frame. Every rule that is due looks at the
+     * terrain as it was at the start of the frame, and the first rule to
+     * change a location wins.
+     *
+     * @param rules    the rules of the terrain, in order of precedence.
+     * @param cells    the type of cell at each location.
+     * @param grass    whether if there is grass at each location.
+     * @param replaced the type of cell that first replaced the initial one
+     *                 at each location, or -1 if it was never replaced.
+     * @param frame    the frame being updated.
+     */
+    private static void step(List<TerrainAutomaton.Rule> rules, int[][] cells,
+                             boolean[][] grass, int[][] replaced, long frame) {
+        int rows = cells.length;
+        int cols = cells[0].length;
+        int[][] oldCells = new int[rows][];
+        boolean[][] oldGrass = new boolean[rows][];
+        for (int r = 0; r < rows; r++) {
+            oldCells[r] = cells[r].clone();
+            oldGrass[r] = grass[r].clone();
+        }
+
+        boolean[][] claimed = new boolean[rows][cols];
+        for (TerrainAutomaton.Rule rule : rules) {
+            if (frame % rule.getInterval() != 0) {
+                continue;
+            }
+
+            boolean fire = rule == TerrainAutomaton.FIRE_SPREAD;
+            int source = fire ? FIRE : WATER;
+            for (int r = 0; r < rows; r++)
+                for (int c = 0; c < cols; c++) {
+                    boolean target = fire ? oldGrass[r][c] : oldCells[r][c] ==
+                            SAND;
+                    if (claimed[r][c] || !target || !(is(oldCells, r - 1, c,
+                            source) || is(oldCells, r + 1, c, source) ||
+                            is(oldCells, r, c - 1, source) || is(oldCells, r,
+                            c + 1, source))) {
+                        continue;
+                    }
+
+                    claimed[r][c] = true;
+                    cells[r][c] = source;
+                    if (replaced[r][c] == -1) {
+                        replaced[r][c] = source;
+                    }
+                    if (fire) {
+                        grass[r][c] = false;
+                    }
+                }
+        }
+    }
+
+    /**
+     * Compares a grid with the reference.
+     *
+     * @param g          the grid.
+     * @param cells      the type of cell at each location in the reference.
+     * @param grass      whether if there is grass at each location in the
+     *                   reference.
+     * @param replaced   the type of cell that first replaced the initial one
+     *                   at each location in the reference, if any.
+     * @param bystanders the bystander left at each location, if any.
+     * @return a description of the first difference, or null if there is
+     * none.
+     */
+    private static String describeDifference(Grid g, int[][] cells,
+                                             boolean[][] grass,
+                                             int[][] replaced,
+                                             Bystander[][] bystanders) {
+        for (int r = 0; r < cells.length; r++)
+            for (int c = 0; c < cells[r].length; c++) {
+                int type = typeOf(g.getCellAt(r, c));
+                boolean hasGrass = false;
+                for (Actor a : g.getResidents(null, r, c))
+                    hasGrass |= a instanceof Grass;
+
+                if (type != cells[r][c] || hasGrass != grass[r][c]) {
+                    return String.format("  (%d, %d): expected %c%s, got " +
+                                    "%c%s%n", r, c, SYMBOLS[cells[r][c]],
+                            grass[r][c] ? " with grass" : "", type == -1 ?
+                                    '?' : SYMBOLS[type], hasGrass ? " with " +
+                                    "grass" : "");
+                }
+                Bystander b = bystanders[r][c];
+                int killer = b == null ? -1 : typeOf(b.killer);
+                if (b != null && killer != replaced[r][c]) {
+                    return String.format("  (%d, %d): bystander on %c was " +
+                                    "killed by %s%n", r, c, SYMBOLS[cells[r][c]],
+                            b.killer);
+                }
+            }
+        return null;
+    }
+
+    /**
+     * Checks the type of cell at a location of the reference.
+     *
+     * @param cells the type of cell at each location.
+     * @param row   the row of the location (may be out of bounds).
+     * @param col   the column of the location (may be out of bounds).
+     * @param type  the type to check for.
+     * @return true if the location is within bounds and of that type.
+     */
+    private static boolean is(int[][] cells, int row, int col, int type) {
+        return row >= 0 && row < cells.length && col >= 0 && col < cells[row]
+                .length && cells[row][col] == type;
+    }
+
+    /**
+     * Counts the locations of the reference with a type of cell.
+     *
+     * @param cells the type of cell at each location.
+     * @param type  the type to count.
+     * @return the number of locations.
+     */
+    private static int count(int[][] cells, int type) {
+        int count = 0;
+        for (int[] row : cells)
+            for (int cell : row)
+                if (cell == type) {
+                    count++;
+                }
+        return count;
+    }
+
+    /**
+     * Obtains the type of a cell.
+     *
+     * @param cell the cell.
+     * @return the type, or -1 if it is none of the types used here.
+     */
+    private static int typeOf(Component cell) {
+        Class<?> types[] = {Sand.class, Water.class, Fire.class, Wall.class};
+        for (int i = 0; i < types.length; i++)
+            if (cell != null && cell.getClass() == types[i]) {
+                return i;
+            }
+        return -1;
+    }
+
+    /**
+     * An actor that stays put, and remembers what killed it.
+     */
+    private static class Bystander extends Actor {
+        private static final long serialVersionUID = -3021846271843597360L;
+        private Component killer;
+
+        @Override
+        public boolean checkInteract(Actor other) {
+            return true;
+        }
+
+        @Override
+        public boolean interact(Actor other) {
+            return true;
+        }
+
+        @Override
+        public DominanceLevel dominanceLevelFor(Actor other) {
+            return ITEM;
+        }
+
+        @Override
+        public boolean die(Component attacker) {
+            if (killer == null) {
+                killer = attacker;
+            }
+            return super.die(attacker);
+        }
+    }
+
+    /**
+     * Places a cell of a type into a grid.
+     *
+     * @param g    the grid.
+     * @param type the type of cell.
+     * @param row  the row to place it at.
+     * @param col  the column to place it at.
+     */
+    private static void place(Grid g, int type, int row, int col) {
+        Class<? extends Cell> cls = type == SAND ? Sand.class : type ==
+                WATER ? Water.class : type == FIRE ? Fire.class : Wall.class;
+        ComponentInfo<? extends Cell> info = ComponentInfo.of(cls);
+        Cell flyweight = info.getFlyweight();
+        if (flyweight != null) {
+            g.placeCell(flyweight, row, col);
+        } else {
+            Cell cell = info.newInstance();
+            cell.getHeadLocation().setLocation(row, col);
+            cell.getTrailingLocation().setLocation(row, col);
+            g.placeCell(cell);
+        }
+    }
+
+    /**
+     * Places an actor into a grid.
+     *
+     * @param g   the grid.
+     * @param a   the actor.
+     * @param row the row to place it at.
+     * @param col the column to place it at.
+     */
+    private static void placeActor(Grid g, Actor a, int row, int col) {
+        a.getHeadLocation().setLocation(row, col);
+        a.getTrailingLocation().setLocation(row, col);
+        if (!g.placeActor(a)) {
+            throw new IllegalStateException("Unable to place actor");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package turtle.world;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.stage.Stage;
+import turtle.core.Direction;
+import turtle.core.GridView;
+import turtle.ui.GameUI;
+
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Plays an endless world, to check that chunks stream in and out smoothly
+ * as the player travels. Usage: <code>EndlessWorldTester [seed]</code>
+ *
+ * @author agent
+ */
+public class EndlessWorldTester extends Application {
+    private static final long DEFAULT_SEED = 1;
+    private static final long NANOS_PER_FRAME = 1_000_000_000L / GameUI
+            .FRAMES_PER_SEC;
+
+    private final EnumMap<KeyCode, Direction> keys = new EnumMap<>(KeyCode
+            .class);
+    private Direction held;
+
+    @SuppressWarnings("javadoc")
+    public static void main(String[] args) {
+        Application.launch(args);
+    }
+
+    /**
+     * Starts playing the endless world.
+     *
+     * @param primaryStage the primary window that will first start up.
+     */
+    @Override
+    public void start(Stage primaryStage) {
+        List<String> args = getParameters().getRaw();
+        long seed = args.isEmpty() ? DEFAULT_SEED : Long.parseLong(args.get(0));
+        EndlessWorld world = new EndlessWorld(seed);
+        GridView view = new GridView(world.getGrid());
+
+        keys.put(KeyCode.LEFT, Direction.WEST);
+        keys.put(KeyCode.UP, Direction.NORTH);
+        keys.put(KeyCode.RIGHT, Direction.EAST);
+        keys.put(KeyCode.DOWN, Direction.SOUTH);
+
+        Scene scene = new Scene(view);
+        scene.setOnKeyPressed(evt -> {
+            if (keys.containsKey(evt.getCode())) {
+                held = keys.get(evt.getCode());
+            }
+        });
+        scene.setOnKeyReleased(evt -> {
+            if (keys.get(evt.getCode()) == held) {
+                held = null;
+            }
+        });
+
+        new AnimationTimer() {
+            private long frame;
+            private long next = -1;
+
+            @Override
+            public void handle(long now) {
+                if (next != -1 && now < next) {
+                    return;
+                }
+                next = now + NANOS_PER_FRAME;
+
+                world.streamChunks();
+                if (held != null) {
+                    world.getGrid().movePlayer(held);
+                }
+                view.updateFrame(frame++);
+                primaryStage.setTitle(String.format("Endless world: chunk " +
+                        "R%dC%d", world.getChunkRow(), world
+                        .getChunkColumn()));
+            }
+        }.start();
+
+        primaryStage.setScene(scene);
+        primaryStage.setOnHidden(evt -> world.close());
+        primaryStage.show();
+    }
+}